@@ -0,0 +1,90 @@
+package loadbalancer.benchmarks;
+
+import loadbalancer.provideravailability.AvailabilityTracerImpl;
+import loadbalancer.provideravailability.AvailabilityTracerObserverSubjectImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import provider.Provider;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heartbeat and admin update throughput of AvailabilityTracerImpl, including the availability notifications
+ * they publish, plus the read path used by LoadBalancer.isExcluded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvailabilityTracerBenchmark {
+
+    @Param({"100", "5000"})
+    private int providerCount;
+
+    private AvailabilityTracerObserverSubjectImpl availabilityTracerObserverSubject;
+
+    private AvailabilityTracerImpl availabilityTracer;
+
+    private List<Provider> providers;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next = ThreadLocalRandom.current().nextInt(1 << 16);
+
+        int next() {
+            next = (next + 1) & Integer.MAX_VALUE;
+            return next;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        availabilityTracerObserverSubject = new AvailabilityTracerObserverSubjectImpl(providerCount);
+        availabilityTracer = new AvailabilityTracerImpl(availabilityTracerObserverSubject, false);
+        providers = BenchmarkSupport.createProviders(providerCount);
+        availabilityTracer.providersRegistered(providers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        availabilityTracer.stop();
+        availabilityTracerObserverSubject.stop();
+    }
+
+    @Benchmark
+    public void updateAlivenessSteady(Cursor cursor) {
+        availabilityTracer.updateAliveness(providers.get(cursor.next() % providerCount), true);
+    }
+
+    @Benchmark
+    public void updateAlivenessFlapping(Cursor cursor) {
+        int step = cursor.next();
+        availabilityTracer.updateAliveness(providers.get((step >>> 1) % providerCount), (step & 1) == 0);
+    }
+
+    @Benchmark
+    public void updateExclusionFlapping(Cursor cursor) {
+        int step = cursor.next();
+        availabilityTracer.updateExclusion(providers.get((step >>> 1) % providerCount), (step & 1) == 0);
+    }
+
+    @Benchmark
+    public boolean isExcluded(Cursor cursor) {
+        return availabilityTracer.isExcluded(providers.get(cursor.next() % providerCount));
+    }
+}
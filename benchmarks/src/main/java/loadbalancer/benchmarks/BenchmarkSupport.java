@@ -0,0 +1,38 @@
+package loadbalancer.benchmarks;
+
+import loadbalancer.provideravailability.AvailabilityChange;
+import loadbalancer.scheduling.AbstractScheduler;
+import provider.Provider;
+import provider.ProviderImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    static List<Provider> createProviders(int count) {
+        List<Provider> providers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            providers.add(new ProviderImpl());
+        }
+        return providers;
+    }
+
+    // Skips waiting for the first heartbeats; they later confirm the same state
+    static void markAvailable(AbstractScheduler scheduler, List<Provider> providers) {
+        List<AvailabilityChange> changes = new ArrayList<>(providers.size());
+        providers.forEach(provider -> changes.add(new AvailabilityChange(provider, true)));
+        scheduler.traceablesAvailabilityChanged(changes);
+    }
+
+    static String[] createKeys(int count) {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = "key-" + i;
+        }
+        return keys;
+    }
+}
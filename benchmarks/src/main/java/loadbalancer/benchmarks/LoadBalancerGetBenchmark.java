@@ -0,0 +1,86 @@
+package loadbalancer.benchmarks;
+
+import loadbalancer.LoadBalancer;
+import loadbalancer.LoadBalancerImpl;
+import loadbalancer.scheduling.AbstractScheduler;
+import loadbalancer.scheduling.SchedulerType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end LoadBalancer.get() for every scheduler type and pool size. Thread count is a JMH option; run with
+ * -t 1, -t 8, -t 32, -t 64 to see how selection scales under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBalancerGetBenchmark {
+
+    @Param
+    private SchedulerType schedulerType;
+
+    @Param({"10", "100", "1000", "10000"})
+    private int providerCount;
+
+    private LoadBalancer loadBalancer;
+
+    private String[] batch;
+
+    @State(Scope.Thread)
+    public static class KeyState {
+
+        private final String[] keys = BenchmarkSupport.createKeys(1024);
+        private int next;
+
+        String nextKey() {
+            return keys[next++ & (keys.length - 1)];
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        AbstractScheduler scheduler = LoadBalancerImpl.createScheduler(schedulerType);
+        loadBalancer = new LoadBalancerImpl(providerCount, false, scheduler, Runnable::run);
+
+        var providers = BenchmarkSupport.createProviders(providerCount);
+        loadBalancer.register(providers);
+        BenchmarkSupport.markAvailable(scheduler, providers);
+
+        batch = new String[64];
+    }
+
+    @TearDown
+    public void tearDown() {
+        loadBalancer.close();
+    }
+
+    @Benchmark
+    public String get() {
+        return loadBalancer.get();
+    }
+
+    @Benchmark
+    public String getWithKey(KeyState keyState) {
+        return loadBalancer.get(keyState.nextKey());
+    }
+
+    @Benchmark
+    public int getBatch64() {
+        return loadBalancer.getBatch(batch);
+    }
+}
@@ -0,0 +1,74 @@
+package loadbalancer.benchmarks;
+
+import loadbalancer.LoadBalancer;
+import loadbalancer.LoadBalancerImpl;
+import loadbalancer.scheduling.SchedulerType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import provider.Provider;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Register/unregister churn through the whole LoadBalancer: registry, availability tracer and heartbeat
+ * scheduling, and scheduler rebuilds. Per-provider and bulk membership changes are measured side by side.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProviderRegistryChurnBenchmark {
+
+    private static final int BACKGROUND_PROVIDER_COUNT = 1000;
+
+    @Param({"ROUND_ROBIN", "WEIGHTED_ROUND_ROBIN", "CONSISTENT_HASH"})
+    private SchedulerType schedulerType;
+
+    @Param({"1", "100", "1000"})
+    private int batchSize;
+
+    private LoadBalancer loadBalancer;
+
+    private List<Provider> batch;
+
+    @Setup
+    public void setUp() {
+        loadBalancer = new LoadBalancerImpl(BACKGROUND_PROVIDER_COUNT + batchSize, false, schedulerType);
+        loadBalancer.register(BenchmarkSupport.createProviders(BACKGROUND_PROVIDER_COUNT));
+        batch = BenchmarkSupport.createProviders(batchSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        loadBalancer.close();
+    }
+
+    @Benchmark
+    public void registerUnregisterOneByOne() {
+        for (var provider : batch) {
+            loadBalancer.register(provider);
+        }
+        for (var provider : batch) {
+            loadBalancer.unregister(provider);
+        }
+    }
+
+    @Benchmark
+    public void registerUnregisterBulk() {
+        loadBalancer.register(batch);
+        loadBalancer.unregister(batch);
+    }
+}
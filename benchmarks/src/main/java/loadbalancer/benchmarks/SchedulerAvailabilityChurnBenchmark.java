@@ -0,0 +1,73 @@
+package loadbalancer.benchmarks;
+
+import loadbalancer.LoadBalancerImpl;
+import loadbalancer.scheduling.AbstractScheduler;
+import loadbalancer.scheduling.SchedulerType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import provider.Provider;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler selection while one thread keeps flipping provider availability, which forces snapshot and table
+ * rebuilds in the background.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulerAvailabilityChurnBenchmark {
+
+    @Param
+    private SchedulerType schedulerType;
+
+    @Param({"10", "1000"})
+    private int providerCount;
+
+    private AbstractScheduler scheduler;
+
+    private List<Provider> providers;
+
+    private int nextFlip;
+
+    @Setup
+    public void setUp() {
+        scheduler = LoadBalancerImpl.createScheduler(schedulerType);
+        providers = BenchmarkSupport.createProviders(providerCount);
+        scheduler.providersRegistered(providers);
+        BenchmarkSupport.markAvailable(scheduler, providers);
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(3)
+    public Provider getNextProvider() {
+        return scheduler.getNextProvider();
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(1)
+    public void flipAvailability() {
+        // Every provider goes down and comes back up in turn; at most one is unavailable at a time
+        int index = (nextFlip >>> 1) % providerCount;
+        boolean isAvailable = (nextFlip & 1) == 1;
+        nextFlip++;
+        scheduler.traceableAvailabilityChanged(providers.get(index), isAvailable);
+    }
+}
@@ -2,16 +2,32 @@ package loadbalancer;
 
 import provider.Provider;
 
-public interface LoadBalancer
+import java.util.concurrent.CompletableFuture;
+
+public interface LoadBalancer extends AutoCloseable
 {
     String get();
 
+    CompletableFuture<String> getAsync();
+
+    String get(String key);
+
+    CompletableFuture<String> getAsync(String key);
+
+    String[] get(int count);
+
+    int getBatch(String[] out);
+
     void register(Provider provider);
 
+    void register(Provider provider, int weight);
+
     void register(Iterable<Provider> providers);
 
     void unregister(Provider provider);
 
+    void unregister(Iterable<Provider> providers);
+
     boolean isRegistered(Provider provider);
 
     void exclude(Provider provider);
@@ -19,4 +35,12 @@ public interface LoadBalancer
     void include(Provider provider);
 
     boolean isExcluded(Provider provider);
+
+    void setWeight(Provider provider, int weight);
+
+    int getWeight(Provider provider);
+
+    // Stops heartbeats and every background thread; the load balancer can not be used afterwards
+    @Override
+    void close();
 }
@@ -1,46 +1,450 @@
 package loadbalancer;
 
+import loadbalancer.admission.AdmissionController;
+import loadbalancer.admission.AdmissionPolicy;
+import loadbalancer.admission.OverloadException;
+import loadbalancer.admission.RequestPriority;
+import loadbalancer.circuitbreaker.CircuitBreakerPolicy;
+import loadbalancer.circuitbreaker.CircuitBreakerRegistry;
+import loadbalancer.concurrency.HashedTimingWheel;
+import loadbalancer.eventlog.EventLevel;
+import loadbalancer.eventlog.EventLogs;
+import loadbalancer.hedging.HedgeController;
+import loadbalancer.hedging.HedgingPolicy;
+import loadbalancer.metrics.LoadBalancerMetrics;
+import loadbalancer.metrics.ProviderMetrics;
 import loadbalancer.provideravailability.AvailabilityTracer;
 import loadbalancer.provideravailability.AvailabilityTracerImpl;
 import loadbalancer.provideravailability.AvailabilityTracerObserverSubject;
 import loadbalancer.provideravailability.AvailabilityTracerObserverSubjectImpl;
+import loadbalancer.provideravailability.heartbeat.HeartbeatPolicy;
 import loadbalancer.providerregistry.ProviderRegistry;
+import loadbalancer.retry.RetryController;
+import loadbalancer.retry.RetryPolicy;
 import loadbalancer.providerregistry.ProviderRegistryImpl;
 import loadbalancer.providerregistry.ProviderRegistryObserverSubject;
 import loadbalancer.providerregistry.ProviderRegistryObserverSubjectImpl;
 import loadbalancer.scheduling.*;
+import loadbalancer.snapshot.StateSnapshotPolicy;
+import loadbalancer.snapshot.StateSnapshotter;
 import provider.Provider;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
 public class LoadBalancerImpl implements LoadBalancer {
 
+    // Selections skipped because the chosen provider's circuit refused the request
+    private static final int MAX_SELECTION_ATTEMPTS = 3;
+
+    // One wheel serves heartbeats, circuit breakers, hedges, admission deadlines and checkpoints; hedge delays and
+    // admission deadlines need the millisecond ticks
+    private static final int TIMER_TICK_DURATION_IN_MS = 1;
+
+    private static final int TIMER_TICKS_PER_WHEEL = 1024;
+
+    // Heartbeats without a prober run their check() on the workers
+    private static final int TIMER_WORKER_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * One get() that may go to two providers. The first successful answer wins and the other call is cancelled; a
+     * failure only completes the request once no other call is left that could still answer.
+     */
+    private final class HedgedRequest {
+
+        private final Provider primaryProvider;
+        private final HedgeController controller;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final AtomicInteger pendingCalls = new AtomicInteger(1);
+
+        private final long startTime = System.nanoTime();
+
+        private volatile CompletableFuture<String> primaryCall;
+        private volatile CompletableFuture<String> hedgeCall;
+        private volatile HashedTimingWheel.Timeout hedgeTimeout;
+
+        private HedgedRequest(Provider primaryProvider, HedgeController controller) {
+            this.primaryProvider = primaryProvider;
+            this.controller = controller;
+        }
+
+        private CompletableFuture<String> start() {
+            controller.requestStarted();
+            invokeAsync(primaryProvider, call -> primaryCall = call)
+                    .whenComplete((value, error) -> {
+                        // Failures are left out, as a fast error would pull the delay down
+                        if (error == null || primaryCall.isCancelled())
+                            controller.primaryCompleted(System.nanoTime() - startTime);
+                        completed(value, error, false);
+                    });
+
+            if (!result.isDone())
+                hedgeTimeout = timingWheel.schedule(this::sendHedge, controller.getDelayInMs());
+            return result;
+        }
+
+        private void sendHedge() {
+            if (result.isDone() || !controller.tryAcquireHedge())
+                return;
+
+            Provider hedgeProvider = acquireOtherProvider(List.of(primaryProvider.getId()));
+            if (hedgeProvider == null) {
+                controller.releaseHedge();
+                return;
+            }
+
+            // The primary may have finished while the provider was picked; nobody would wait for this hedge
+            if (result.isDone()) {
+                circuitBreakers.release(hedgeProvider);
+                controller.releaseHedge();
+                return;
+            }
+
+            pendingCalls.incrementAndGet();
+            controller.hedgeSent();
+            try {
+                invokeAsync(hedgeProvider, call -> hedgeCall = call)
+                        .whenComplete((value, error) -> completed(value, error, true));
+            } catch (RuntimeException e) {
+                completed(null, e, true);
+                return;
+            }
+
+            // Covers a primary that won before hedgeCall was set, when cancelLoser could not see it
+            if (result.isDone())
+                cancelLoser(false);
+        }
+
+        private void completed(String value, Throwable error, boolean isHedge) {
+            if (error == null) {
+                if (result.complete(value)) {
+                    if (isHedge)
+                        controller.hedgeWon();
+                    cancelLoser(isHedge);
+                }
+                return;
+            }
+
+            if (pendingCalls.decrementAndGet() == 0)
+                result.completeExceptionally(error);
+        }
+
+        private void cancelLoser(boolean isHedgeWinner) {
+            HashedTimingWheel.Timeout timeout = hedgeTimeout;
+            if (timeout != null)
+                timeout.cancel();
+
+            CompletableFuture<String> loser = isHedgeWinner ? primaryCall : hedgeCall;
+            if (loser != null)
+                loser.cancel(true);
+        }
+    }
+
+    // Retry state of one request; its attempts run one after another, so no synchronization is needed
+    private static final class RetryState {
+
+        private final RetryController controller;
+        private final List<String> triedProviderIds = new ArrayList<>(2);
+        private int attempt = 1;
+
+        private RetryState(RetryController controller) {
+            this.controller = controller;
+        }
+    }
+
     private final ProviderRegistryObserverSubject providerRegistryObserverSubject;
 
-    private final AvailabilityTracerObserverSubject availabilityTracerObserverSubject;
+    private final AvailabilityTracerObserverSubjectImpl availabilityTracerObserverSubject;
     private ProviderRegistry providerRegistry;
     private AbstractScheduler scheduler;
 
-    private AvailabilityTracer availabilityTracer;
+    private AvailabilityTracerImpl availabilityTracer;
+
+    private final HashedTimingWheel timingWheel;
+
+    private final Executor invocationExecutor;
+
+    private final LoadBalancerMetrics metrics;
+
+    private final CircuitBreakerRegistry circuitBreakers;
+
+    private volatile HedgeController hedgeController;
+
+    private volatile RetryController retryController;
+
+    private volatile AdmissionController admissionController;
+
+    private volatile StateSnapshotter stateSnapshotter;
+
+    private boolean isClosed;
+
+    private final ThreadLocal<Provider[]> batchProviders = ThreadLocal.withInitial(() -> new Provider[0]);
 
     public LoadBalancerImpl(int providerCapacity, boolean isApplyReInclusionPolicy, SchedulerType schedulerType) {
-        scheduler = createScheduler(schedulerType);
+        this(providerCapacity, isApplyReInclusionPolicy, schedulerType, Runnable::run);
+    }
+
+    /**
+     * @param invocationExecutor runs Provider.get() for asynchronous requests. Runnable::run keeps the call on the
+     *                           caller's thread; VirtualThreadExecutors.newPerTaskExecutor gives one virtual thread per
+     *                           call on runtimes that support it.
+     */
+    public LoadBalancerImpl(int providerCapacity, boolean isApplyReInclusionPolicy, SchedulerType schedulerType,
+                            Executor invocationExecutor) {
+        this(providerCapacity, isApplyReInclusionPolicy, createScheduler(schedulerType), invocationExecutor);
+    }
+
+    // For schedulers that need their own configuration, e.g. a ConsistentHashScheduler with a custom load bound
+    public LoadBalancerImpl(int providerCapacity, boolean isApplyReInclusionPolicy, AbstractScheduler scheduler,
+                            Executor invocationExecutor) {
+        this(providerCapacity, isApplyReInclusionPolicy, scheduler, invocationExecutor, CircuitBreakerPolicy.DEFAULT);
+    }
+
+    public LoadBalancerImpl(int providerCapacity, boolean isApplyReInclusionPolicy, AbstractScheduler scheduler,
+                            Executor invocationExecutor, CircuitBreakerPolicy circuitBreakerPolicy) {
+        this(providerCapacity, isApplyReInclusionPolicy, scheduler, invocationExecutor, circuitBreakerPolicy,
+                HeartbeatPolicy.DEFAULT);
+    }
+
+    // HeartbeatPolicy.phiAccrual(PhiAccrualPolicy.DEFAULT) switches to the phi accrual detector with adaptive intervals
+    public LoadBalancerImpl(int providerCapacity, boolean isApplyReInclusionPolicy, AbstractScheduler scheduler,
+                            Executor invocationExecutor, CircuitBreakerPolicy circuitBreakerPolicy,
+                            HeartbeatPolicy heartbeatPolicy) {
+        if (scheduler == null)
+            throw new IllegalArgumentException("Scheduler can not be null");
+
+        if (invocationExecutor == null)
+            throw new IllegalArgumentException("Invocation executor can not be null");
+
+        this.invocationExecutor = invocationExecutor;
+        this.scheduler = scheduler;
+
+        metrics = new LoadBalancerMetrics();
+        metrics.bindSchedulerLockStatistics(scheduler::getLockWaitTimeInNanos, scheduler::getLockAcquisitionCount);
+
+        timingWheel = new HashedTimingWheel("load-balancer", TIMER_TICK_DURATION_IN_MS, TIMER_TICKS_PER_WHEEL,
+                TIMER_WORKER_COUNT);
 
         providerRegistryObserverSubject = new ProviderRegistryObserverSubjectImpl();
-        availabilityTracerObserverSubject = new AvailabilityTracerObserverSubjectImpl();
+        availabilityTracerObserverSubject = new AvailabilityTracerObserverSubjectImpl(Math.max(providerCapacity, 1));
 
-        AvailabilityTracerImpl availabilityTracerImpl = createAvailabilityTracerImpl(availabilityTracerObserverSubject, isApplyReInclusionPolicy);
-        availabilityTracer = availabilityTracerImpl;
+        availabilityTracer = createAvailabilityTracerImpl(availabilityTracerObserverSubject, isApplyReInclusionPolicy,
+                heartbeatPolicy);
 
+        providerRegistryObserverSubject.attach(metrics);
         providerRegistryObserverSubject.attach(scheduler);
-        providerRegistryObserverSubject.attach(availabilityTracerImpl);
+        providerRegistryObserverSubject.attach(availabilityTracer);
+
+        // Attached after the tracer so a circuit can only open for a provider the tracer already knows
+        circuitBreakers = new CircuitBreakerRegistry(circuitBreakerPolicy, availabilityTracer, timingWheel);
+        providerRegistryObserverSubject.attach(circuitBreakers);
 
         availabilityTracerObserverSubject.attach(scheduler);
 
         providerRegistry = new ProviderRegistryImpl(providerCapacity, providerRegistryObserverSubject);
     }
 
+    /**
+     * Hedges get() and getAsync() without a key; null disables hedging. Keyed requests are never hedged, so they
+     * keep their affinity. Hedging needs an asynchronous invocation executor: with Runnable::run the first call has
+     * already returned by the time a hedge could be sent.
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        hedgeController = hedgingPolicy == null ? null : new HedgeController(hedgingPolicy);
+    }
+
+    // Null while hedging is disabled
+    public HedgeController getHedgeController() {
+        return hedgeController;
+    }
+
+    /**
+     * Retries a failed get() on a different provider, up to the policy's attempts and within its global retry budget;
+     * null disables retries. Keyed requests are retried on any other provider, giving up their affinity for that call.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        retryController = retryPolicy == null ? null : new RetryController(retryPolicy);
+    }
+
+    // Null while retries are disabled
+    public RetryController getRetryController() {
+        return retryController;
+    }
+
+    /**
+     * Puts admission control in front of every get(); null disables it. Requests beyond the policy's concurrency wait
+     * in a bounded queue by priority and are rejected with an OverloadException once their deadline can not be met.
+     * With admission control, a request that finds every provider at its concurrency limit is rejected the same way
+     * instead of returning null.
+     */
+    public void setAdmissionPolicy(AdmissionPolicy admissionPolicy) {
+        admissionController = admissionPolicy == null ? null : new AdmissionController(admissionPolicy, timingWheel);
+    }
+
+    // Null while admission control is disabled
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    /**
+     * Checkpoints provider state to the policy's file and restores it from there; null takes a last checkpoint and
+     * stops. Set it before registering providers after a restart, so re-registered providers start serving with their
+     * last-known health instead of waiting for their first heartbeats. Only providers whose ids are stable across
+     * restarts can be restored; see StateSnapshotter.
+     */
+    public synchronized void setStateSnapshotPolicy(StateSnapshotPolicy stateSnapshotPolicy) {
+        StateSnapshotter previous = stateSnapshotter;
+        if (previous != null) {
+            providerRegistryObserverSubject.detach(previous);
+            previous.stop();
+        }
+
+        if (stateSnapshotPolicy == null) {
+            stateSnapshotter = null;
+            return;
+        }
+
+        StateSnapshotter snapshotter = new StateSnapshotter(stateSnapshotPolicy, providerRegistry, availabilityTracer,
+                scheduler, timingWheel);
+        providerRegistryObserverSubject.attach(snapshotter);
+        snapshotter.start();
+        stateSnapshotter = snapshotter;
+    }
+
+    // Null while state snapshots are disabled
+    public StateSnapshotter getStateSnapshotter() {
+        return stateSnapshotter;
+    }
+
+    // Pull-style snapshot via metrics.snapshot(); call metrics.registerMBeans(name) to expose it over JMX
+    public LoadBalancerMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public String get() {
-        return scheduler.getNext();
+        return get(null, RequestPriority.NORMAL, 0);
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync() {
+        return getAsync(null, RequestPriority.NORMAL, 0);
+    }
+
+    @Override
+    public String get(String key) {
+        return get(key, RequestPriority.NORMAL, 0);
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync(String key) {
+        return getAsync(key, RequestPriority.NORMAL, 0);
+    }
+
+    public String get(RequestPriority priority, long timeoutInMs) {
+        return get(null, priority, timeoutInMs);
+    }
+
+    public CompletableFuture<String> getAsync(RequestPriority priority, long timeoutInMs) {
+        return getAsync(null, priority, timeoutInMs);
+    }
+
+    /**
+     * Priority and deadline only matter under admission control. The deadline bounds the wait for admission, 0 taking
+     * the policy's default; a request that has been sent to a provider is not cut off.
+     */
+    public String get(String key, RequestPriority priority, long timeoutInMs) {
+        AdmissionController controller = admissionController;
+        if (controller == null)
+            return await(dispatchAsync(key, null));
+
+        // Waits on the caller's thread, so the provider is still called from here once admitted
+        await(controller.acquire(priority, timeoutInMs));
+        long startTime = System.nanoTime();
+        try {
+            return await(dispatchAsync(key, controller));
+        } finally {
+            controller.release(System.nanoTime() - startTime);
+        }
+    }
+
+    public CompletableFuture<String> getAsync(String key, RequestPriority priority, long timeoutInMs) {
+        AdmissionController controller = admissionController;
+        if (controller == null)
+            return dispatchAsync(key, null);
+
+        CompletableFuture<Void> ticket = controller.acquire(priority, timeoutInMs);
+        if (ticket.isDone() && !ticket.isCompletedExceptionally())
+            return dispatchAdmittedAsync(key, controller);
+
+        // Not thenCompose: a dependent the caller cancels would never run, and an admitted request never released
+        CompletableFuture<String> result = new CompletableFuture<>();
+        ticket.whenComplete((ignored, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else if (result.isDone()) {
+                controller.releaseUnsent();
+            } else {
+                dispatchQueuedAsync(key, controller, result);
+            }
+        });
+
+        // A caller that cancels or times out while queued gives its place back
+        result.whenComplete((value, error) -> {
+            if (error != null)
+                ticket.cancel(false);
+        });
+        return result;
+    }
+
+    @Override
+    public String[] get(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Batch count can not be negative");
+
+        String[] results = new String[count];
+        int selectedCount = getBatch(results);
+        if (selectedCount < count)
+            return Arrays.copyOf(results, selectedCount);
+        return results;
+    }
+
+    @Override
+    public int getBatch(String[] out) {
+        if (out == null)
+            throw new IllegalArgumentException("Batch output can not be null");
+
+        AdmissionController controller = admissionController;
+        Provider[] providers = getBatchProviders(out.length);
+        try {
+            int selectedCount = scheduler.getNextProviders(providers, 0, out.length);
+            int invokedCount = 0;
+            for (int i = 0; i < selectedCount; i++) {
+                // Batches never queue for admission; they return fewer results instead
+                if (controller != null && !controller.tryAcquire())
+                    break;
+
+                long startTime = System.nanoTime();
+                try {
+                    Provider provider = circuitBreakers.tryAcquire(providers[i]) ? providers[i] : acquireProvider(null);
+                    if (provider != null)
+                        out[invokedCount++] = invokeWithRetries(provider);
+                } finally {
+                    if (controller != null)
+                        controller.release(System.nanoTime() - startTime);
+                }
+            }
+            return invokedCount;
+        } finally {
+            Arrays.fill(providers, 0, out.length, null);
+        }
     }
 
     @Override
@@ -48,6 +452,21 @@ public class LoadBalancerImpl implements LoadBalancer {
         providerRegistry.register(provider);
     }
 
+    @Override
+    public void register(Provider provider, int weight) {
+        if (weight <= 0)
+            throw new IllegalArgumentException("Weight must be positive");
+
+        // Set before observers hear of the provider, so a weight restored from a state snapshot replaces it and a
+        // provider restored as alive is never selectable with its default weight
+        scheduler.setInitialWeight(provider, weight);
+        try {
+            providerRegistry.register(provider);
+        } finally {
+            scheduler.clearInitialWeight(provider);
+        }
+    }
+
     @Override
     public void register(Iterable<Provider> providers) {
         providerRegistry.register(providers);
@@ -58,6 +477,11 @@ public class LoadBalancerImpl implements LoadBalancer {
         providerRegistry.unregister(provider);
     }
 
+    @Override
+    public void unregister(Iterable<Provider> providers) {
+        providerRegistry.unregister(providers);
+    }
+
     @Override
     public boolean isRegistered(Provider provider) {
         return providerRegistry.isRegistered(provider);
@@ -78,7 +502,280 @@ public class LoadBalancerImpl implements LoadBalancer {
         return isExcludedProvider(provider);
     }
 
-    private AbstractScheduler createScheduler(SchedulerType schedulerType) {
+    @Override
+    public void setWeight(Provider provider, int weight) {
+        if (provider == null)
+            throw new IllegalArgumentException("Provider can not be invalid");
+
+        scheduler.updateWeight(provider, weight);
+    }
+
+    @Override
+    public int getWeight(Provider provider) {
+        if (provider == null)
+            throw new IllegalArgumentException("Provider can not be invalid");
+
+        return scheduler.getWeight(provider);
+    }
+
+    /**
+     * Takes a last checkpoint, stops heartbeats and interrupts running probes, then stops the timing wheel and the
+     * availability dispatcher. Calls already sent to providers still complete; requests still waiting for admission
+     * never will.
+     */
+    @Override
+    public synchronized void close() {
+        if (isClosed)
+            return;
+        isClosed = true;
+
+        setStateSnapshotPolicy(null);
+        availabilityTracer.stop();
+        timingWheel.stop();
+        availabilityTracerObserverSubject.stop();
+    }
+
+    private CompletableFuture<String> dispatchAdmittedAsync(String key, AdmissionController controller) {
+        long startTime = System.nanoTime();
+        CompletableFuture<String> call;
+        try {
+            call = dispatchAsync(key, controller);
+        } catch (RuntimeException e) {
+            controller.release(System.nanoTime() - startTime);
+            throw e;
+        }
+        return call.whenComplete((result, error) -> controller.release(System.nanoTime() - startTime));
+    }
+
+    private void dispatchQueuedAsync(String key, AdmissionController controller, CompletableFuture<String> result) {
+        try {
+            dispatchAdmittedAsync(key, controller).whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private CompletableFuture<String> dispatchAsync(String key, AdmissionController controller) {
+        Provider provider = acquireProvider(key);
+        if (provider == null) {
+            // Providers are up but none can take the request; under admission control that is overload, not absence
+            if (controller != null && scheduler.getAvailableCount() > 0)
+                return CompletableFuture.failedFuture(controller.rejected(OverloadException.Reason.SATURATED));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Keyed requests are never hedged, so they keep their affinity
+        return invokeWithRetriesAsync(provider, key == null);
+    }
+
+    private String invokeWithRetries(Provider provider) {
+        RetryController controller = retryController;
+        if (controller == null)
+            return invoke(provider);
+
+        // A synchronous attempt is a future that is already complete, so the async retry loop runs on this thread
+        return await(retryOnFailure(attemptSync(provider), provider, new RetryState(controller), this::attemptSync));
+    }
+
+    private CompletableFuture<String> invokeWithRetriesAsync(Provider provider, boolean isHedgeable) {
+        CompletableFuture<String> call = attemptAsync(provider, isHedgeable);
+        RetryController controller = retryController;
+        if (controller == null)
+            return call;
+
+        return retryOnFailure(call, provider, new RetryState(controller),
+                nextProvider -> attemptAsync(nextProvider, isHedgeable));
+    }
+
+    private CompletableFuture<String> retryOnFailure(CompletableFuture<String> call, Provider provider,
+                                                     RetryState state,
+                                                     Function<Provider, CompletableFuture<String>> attempt) {
+        // Providers called on the caller's thread have already answered; skip the extra stages then
+        if (call.isDone() && !call.isCompletedExceptionally()) {
+            state.controller.requestSucceeded();
+            return call;
+        }
+
+        return call.handle((value, error) -> {
+            if (error == null) {
+                state.controller.requestSucceeded();
+                return call;
+            }
+
+            Provider nextProvider = acquireRetryProvider(provider, state);
+            if (nextProvider == null)
+                return call;
+
+            return retryOnFailure(attempt.apply(nextProvider), nextProvider, state, attempt);
+        }).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<String> attemptSync(Provider provider) {
+        try {
+            return CompletableFuture.completedFuture(invoke(provider));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<String> attemptAsync(Provider provider, boolean isHedgeable) {
+        HedgeController controller = hedgeController;
+        if (controller == null || !isHedgeable)
+            return invokeAsync(provider);
+
+        return new HedgedRequest(provider, controller).start();
+    }
+
+    // Every provider the request has already failed on is skipped, not only the last one
+    private Provider acquireRetryProvider(Provider failedProvider, RetryState state) {
+        state.triedProviderIds.add(failedProvider.getId());
+        if (!state.controller.tryAcquireRetry(state.attempt))
+            return null;
+
+        Provider provider = acquireOtherProvider(state.triedProviderIds);
+        if (provider == null) {
+            state.controller.releaseRetry();
+            return null;
+        }
+
+        state.attempt++;
+        return provider;
+    }
+
+    private String invoke(Provider provider) {
+        ProviderMetrics providerMetrics = requestStarted(provider);
+        long startTime = System.nanoTime();
+        boolean isSuccess = false;
+        try {
+            String result = provider.get();
+            isSuccess = true;
+            return result;
+        } finally {
+            requestCompleted(provider, providerMetrics, System.nanoTime() - startTime, isSuccess);
+        }
+    }
+
+    private CompletableFuture<String> invokeAsync(Provider provider) {
+        return invokeAsync(provider, null);
+    }
+
+    /**
+     * The call listener receives the returned future, which is the one to cancel. Cancelling it does not stop a call
+     * that is already running, so the provider's outstanding count and concurrency limit permit are only given back
+     * once the provider's own future completes.
+     */
+    private CompletableFuture<String> invokeAsync(Provider provider, Consumer<CompletableFuture<String>> callListener) {
+        ProviderMetrics providerMetrics = requestStarted(provider);
+        long startTime = System.nanoTime();
+        CompletableFuture<String> source;
+        try {
+            source = provider.getAsync(invocationExecutor);
+        } catch (RuntimeException e) {
+            requestCompleted(provider, providerMetrics, System.nanoTime() - startTime, false);
+            throw e;
+        }
+
+        CompletableFuture<String> call = new CompletableFuture<>();
+        if (callListener != null)
+            callListener.accept(call);
+
+        source.whenComplete((result, error) -> {
+            long latencyInNanos = System.nanoTime() - startTime;
+            if (call.isCancelled()) {
+                requestCancelled(provider, latencyInNanos);
+            } else {
+                requestCompleted(provider, providerMetrics, latencyInNanos, error == null);
+            }
+
+            if (error == null) {
+                call.complete(result);
+            } else {
+                call.completeExceptionally(error);
+            }
+        });
+        return call;
+    }
+
+    private Provider acquireProvider(String key) {
+        if (key != null) {
+            // The key always maps to the same provider; when its circuit refuses, the request gives up its affinity
+            Provider provider = scheduler.getNextProvider(key);
+            if (provider == null || circuitBreakers.tryAcquire(provider))
+                return provider;
+            return acquireOtherProvider(List.of(provider.getId()));
+        }
+
+        for (int attempt = 0; attempt < MAX_SELECTION_ATTEMPTS; attempt++) {
+            Provider provider = scheduler.getNextProvider();
+            if (provider == null || circuitBreakers.tryAcquire(provider))
+                return provider;
+        }
+        return null;
+    }
+
+    // Excluded providers are skipped before their circuit is asked, so they never spend a half open trial permit
+    private Provider acquireOtherProvider(List<String> excludedProviderIds) {
+        for (int attempt = 0; attempt < MAX_SELECTION_ATTEMPTS * (excludedProviderIds.size() + 1); attempt++) {
+            Provider provider = scheduler.getNextProvider();
+            if (provider == null)
+                return null;
+            if (!excludedProviderIds.contains(provider.getId()) && circuitBreakers.tryAcquire(provider))
+                return provider;
+        }
+        return null;
+    }
+
+    private ProviderMetrics requestStarted(Provider provider) {
+        scheduler.requestStarted(provider);
+        ProviderMetrics providerMetrics = metrics.getProviderMetrics(provider.getId());
+        if (providerMetrics != null)
+            providerMetrics.recordSelection();
+        return providerMetrics;
+    }
+
+    private void requestCompleted(Provider provider, ProviderMetrics providerMetrics, long latencyInNanos,
+                                  boolean isSuccess) {
+        scheduler.requestCompleted(provider, latencyInNanos);
+        circuitBreakers.onCompleted(provider, latencyInNanos, isSuccess);
+        if (providerMetrics != null)
+            providerMetrics.recordGet(latencyInNanos, isSuccess);
+    }
+
+    // A cancelled call says nothing about the provider's health, so its circuit only gets a half open trial permit back
+    private void requestCancelled(Provider provider, long latencyInNanos) {
+        scheduler.requestCompleted(provider, latencyInNanos);
+        circuitBreakers.release(provider);
+    }
+
+    private Provider[] getBatchProviders(int length) {
+        Provider[] providers = batchProviders.get();
+        if (providers.length < length) {
+            providers = new Provider[length];
+            batchProviders.set(providers);
+        }
+        return providers;
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            if (cause instanceof Error error)
+                throw error;
+            throw e;
+        }
+    }
+
+    public static AbstractScheduler createScheduler(SchedulerType schedulerType) {
         switch (schedulerType) {
             case RANDOM -> {
                 return new RandomScheduler();
@@ -86,21 +783,41 @@ public class LoadBalancerImpl implements LoadBalancer {
             case ROUND_ROBIN -> {
                 return new RoundRobinScheduler();
             }
+            case WEIGHTED_ROUND_ROBIN -> {
+                return new WeightedRoundRobinScheduler();
+            }
+            case LEAST_OUTSTANDING -> {
+                return new LeastOutstandingScheduler();
+            }
+            case PEAK_EWMA -> {
+                return new PeakEwmaScheduler();
+            }
+            case CONSISTENT_HASH -> {
+                return new ConsistentHashScheduler();
+            }
+            case CONSISTENT_HASH_BOUNDED_LOAD -> {
+                return new ConsistentHashScheduler(ConsistentHashScheduler.DEFAULT_BOUNDED_LOAD_FACTOR);
+            }
+            case WEIGHTED_RANDOM -> {
+                return new WeightedRandomScheduler();
+            }
         }
 
         throw new IllegalArgumentException("Unknown scheduling type: " + schedulerType);
     }
 
     private AvailabilityTracerImpl createAvailabilityTracerImpl(AvailabilityTracerObserverSubject availabilityTracerObserverSubject,
-                                                                boolean isApplyReInclusionPolicy) {
-        return new AvailabilityTracerImpl(availabilityTracerObserverSubject, isApplyReInclusionPolicy);
+                                                                boolean isApplyReInclusionPolicy,
+                                                                HeartbeatPolicy heartbeatPolicy) {
+        return new AvailabilityTracerImpl(availabilityTracerObserverSubject, isApplyReInclusionPolicy, heartbeatPolicy,
+                metrics, timingWheel);
     }
 
     private void excludeProvider(Provider provider) {
         if (provider == null)
             throw new IllegalArgumentException("Provider can not be invalid");
 
-        System.out.println("Manually excluded provider id: " + provider.getId());
+        EventLogs.get().log(EventLevel.INFO, "load-balancer", "Manually excluded provider id: %s", provider.getId());
 
         availabilityTracer.updateExclusion(provider, true);
     }
@@ -110,7 +827,7 @@ public class LoadBalancerImpl implements LoadBalancer {
             throw new IllegalArgumentException("Provider can not be invalid");
         }
 
-        System.out.println("Manually included provider id: " + provider.getId());
+        EventLogs.get().log(EventLevel.INFO, "load-balancer", "Manually included provider id: %s", provider.getId());
 
         availabilityTracer.updateExclusion(provider, false);
     }
@@ -0,0 +1,356 @@
+package loadbalancer.admission;
+
+import loadbalancer.concurrency.HashedTimingWheel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission layer in front of the scheduler. Up to the policy's concurrent requests pass straight through; the rest
+ * wait in a bounded queue per priority and are admitted highest priority first as admitted requests are released.
+ * A request is rejected at once when its priority has no room in the queue or when the expected wait, estimated
+ * from recent service times, would already miss its deadline, so overload turns into fast, typed rejections instead
+ * of every caller timing out.
+ */
+public class AdmissionController {
+
+    private static final RequestPriority[] PRIORITIES = RequestPriority.values();
+
+    private static final double SERVICE_TIME_ALPHA = 2.0 / (100 + 1);
+
+    private static final CompletableFuture<Void> ADMITTED = CompletableFuture.completedFuture(null);
+
+    private final class Waiter {
+
+        private final RequestPriority priority;
+        private final long deadline;
+        private final CompletableFuture<Void> ticket = new CompletableFuture<>();
+
+        private volatile HashedTimingWheel.Timeout timeout;
+
+        private Waiter(RequestPriority priority, long deadline) {
+            this.priority = priority;
+            this.deadline = deadline;
+        }
+    }
+
+    // Completing a ticket may run the admitted request, and its release, on the dispatching thread
+    private static final class DispatchState {
+
+        private boolean isDispatching;
+        private boolean isPending;
+    }
+
+    private final AdmissionPolicy policy;
+    private final HashedTimingWheel timer;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queueLength = new AtomicInteger();
+
+    private final Object lock = new Object();
+
+    // One queue per priority, highest first
+    private final List<ArrayDeque<Waiter>> queues = new ArrayList<>(PRIORITIES.length);
+
+    private final ThreadLocal<DispatchState> dispatchState = ThreadLocal.withInitial(DispatchState::new);
+
+    private final AtomicLong serviceTimeBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+
+    private final LongAdder admittedCount = new LongAdder();
+    private final LongAdder[] rejectedCounts = new LongAdder[OverloadException.Reason.values().length];
+
+    public AdmissionController(AdmissionPolicy policy, HashedTimingWheel timer) {
+        if (policy == null)
+            throw new IllegalArgumentException("Admission policy can not be null");
+
+        if (timer == null)
+            throw new IllegalArgumentException("HashedTimingWheel can not be null");
+
+        this.policy = policy;
+        this.timer = timer;
+
+        for (int i = 0; i < PRIORITIES.length; i++)
+            queues.add(new ArrayDeque<>());
+        for (int i = 0; i < rejectedCounts.length; i++)
+            rejectedCounts[i] = new LongAdder();
+    }
+
+    public AdmissionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Completes once the request is admitted, or exceptionally with an OverloadException. Every admitted request
+     * must be released exactly once. Cancelling the ticket withdraws a request that is still queued; a ticket that
+     * was admitted first can no longer be cancelled and must be released.
+     *
+     * @param timeoutInMs the request's deadline from now; 0 for the policy's default
+     */
+    public CompletableFuture<Void> acquire(RequestPriority priority, long timeoutInMs) {
+        if (priority == null)
+            throw new IllegalArgumentException("Request priority can not be null");
+
+        if (timeoutInMs < 0)
+            throw new IllegalArgumentException("Timeout can not be negative");
+
+        if (queueLength.get() == 0 && tryAcquirePermit()) {
+            admittedCount.increment();
+            return ADMITTED;
+        }
+
+        long effectiveTimeoutInMs = timeoutInMs == 0 ? policy.getDefaultTimeoutInMs() : timeoutInMs;
+        long now = System.nanoTime();
+        long deadline = effectiveTimeoutInMs == 0 ? 0 : now + TimeUnit.MILLISECONDS.toNanos(effectiveTimeoutInMs);
+
+        Waiter waiter = new Waiter(priority, deadline);
+        Waiter shedWaiter;
+        synchronized (lock) {
+            OverloadException.Reason reason = checkQueueable(priority, deadline, now);
+            if (reason != null)
+                return reject(reason);
+
+            shedWaiter = queueLength.get() >= policy.getMaxQueueLength() ? pollLowerPriority(priority) : null;
+            queues.get(priority.ordinal()).addLast(waiter);
+            queueLength.incrementAndGet();
+        }
+
+        if (shedWaiter != null)
+            fail(shedWaiter, OverloadException.Reason.SHED);
+
+        if (deadline != 0) {
+            long delayInMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - now));
+            waiter.timeout = timer.schedule(() -> expire(waiter), delayInMs);
+        }
+
+        waiter.ticket.whenComplete((ignored, error) -> {
+            if (waiter.ticket.isCancelled())
+                withdraw(waiter);
+        });
+
+        // A permit released between the fast path and the enqueue is picked up here
+        dispatch();
+        return waiter.ticket;
+    }
+
+    // Never queues; for batches, which would rather return fewer results than wait
+    public boolean tryAcquire() {
+        if (queueLength.get() == 0 && tryAcquirePermit()) {
+            admittedCount.increment();
+            return true;
+        }
+
+        rejectedCounts[OverloadException.Reason.QUEUE_FULL.ordinal()].increment();
+        return false;
+    }
+
+    public void release(long serviceTimeInNanos) {
+        updateServiceTime(serviceTimeInNanos);
+        releasePermit();
+    }
+
+    // For an admitted request that was never sent, e.g. its caller gave up; it says nothing about service times
+    public void releaseUnsent() {
+        releasePermit();
+    }
+
+    // For a rejection the caller detects after admission, e.g. every provider being at its concurrency limit
+    public OverloadException rejected(OverloadException.Reason reason) {
+        rejectedCounts[reason.ordinal()].increment();
+        return createException(reason);
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public int getQueueLength() {
+        return queueLength.get();
+    }
+
+    public long getAdmittedCount() {
+        return admittedCount.sum();
+    }
+
+    public long getRejectedCount(OverloadException.Reason reason) {
+        return rejectedCounts[reason.ordinal()].sum();
+    }
+
+    public double getServiceTimeInMs() {
+        return Double.longBitsToDouble(serviceTimeBits.get()) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private OverloadException.Reason checkQueueable(RequestPriority priority, long deadline, long now) {
+        int maxQueueLength = policy.getMaxQueueLength();
+        int queued = queueLength.get();
+
+        // Sheddable requests leave half of the queue to the more important ones
+        if (priority == RequestPriority.SHEDDABLE && queued >= maxQueueLength / 2)
+            return OverloadException.Reason.QUEUE_FULL;
+
+        if (queued >= maxQueueLength && !hasLowerPriorityWaiter(priority))
+            return OverloadException.Reason.QUEUE_FULL;
+
+        double serviceTime = Double.longBitsToDouble(serviceTimeBits.get());
+        if (deadline != 0 && serviceTime > 0) {
+            // Waiters of the same or higher priority go first, and the permits drain them in parallel
+            int ahead = 0;
+            for (int i = 0; i <= priority.ordinal(); i++)
+                ahead += queues.get(i).size();
+
+            double expectedWait = (ahead + 1) * serviceTime / policy.getMaxConcurrentRequests();
+            if (now + expectedWait + serviceTime > deadline)
+                return OverloadException.Reason.DEADLINE_UNREACHABLE;
+        }
+        return null;
+    }
+
+    private boolean hasLowerPriorityWaiter(RequestPriority priority) {
+        for (int i = PRIORITIES.length - 1; i > priority.ordinal(); i--) {
+            if (!queues.get(i).isEmpty())
+                return true;
+        }
+        return false;
+    }
+
+    // The newest waiter of the lowest priority below the given one
+    private Waiter pollLowerPriority(RequestPriority priority) {
+        for (int i = PRIORITIES.length - 1; i > priority.ordinal(); i--) {
+            Waiter waiter = queues.get(i).pollLast();
+            if (waiter != null) {
+                queueLength.decrementAndGet();
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    private void dispatch() {
+        DispatchState state = dispatchState.get();
+        if (state.isDispatching) {
+            state.isPending = true;
+            return;
+        }
+
+        state.isDispatching = true;
+        try {
+            do {
+                state.isPending = false;
+                Waiter waiter;
+                while ((waiter = pollAdmittable()) != null)
+                    admit(waiter);
+            } while (state.isPending);
+        } finally {
+            state.isDispatching = false;
+        }
+    }
+
+    private Waiter pollAdmittable() {
+        synchronized (lock) {
+            for (ArrayDeque<Waiter> queue : queues) {
+                if (queue.isEmpty())
+                    continue;
+
+                if (!tryAcquirePermit())
+                    return null;
+
+                queueLength.decrementAndGet();
+                return queue.pollFirst();
+            }
+            return null;
+        }
+    }
+
+    private void admit(Waiter waiter) {
+        HashedTimingWheel.Timeout timeout = waiter.timeout;
+        if (timeout != null)
+            timeout.cancel();
+
+        // Higher priorities may have overtaken it; a request that can no longer finish in time is not worth sending
+        double serviceTime = Double.longBitsToDouble(serviceTimeBits.get());
+        if (waiter.deadline != 0 && System.nanoTime() + (long) serviceTime - waiter.deadline > 0) {
+            inFlight.decrementAndGet();
+            fail(waiter, OverloadException.Reason.DEADLINE_EXCEEDED);
+            return;
+        }
+
+        // A ticket cancelled after it left the queue hands its permit straight on; the dispatch loop picks it up
+        if (!waiter.ticket.complete(null)) {
+            inFlight.decrementAndGet();
+            return;
+        }
+        admittedCount.increment();
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (lock) {
+            if (!queues.get(waiter.priority.ordinal()).remove(waiter))
+                return;
+            queueLength.decrementAndGet();
+        }
+        fail(waiter, OverloadException.Reason.DEADLINE_EXCEEDED);
+    }
+
+    private void withdraw(Waiter waiter) {
+        synchronized (lock) {
+            if (!queues.get(waiter.priority.ordinal()).remove(waiter))
+                return;
+            queueLength.decrementAndGet();
+        }
+
+        HashedTimingWheel.Timeout timeout = waiter.timeout;
+        if (timeout != null)
+            timeout.cancel();
+    }
+
+    private void fail(Waiter waiter, OverloadException.Reason reason) {
+        HashedTimingWheel.Timeout timeout = waiter.timeout;
+        if (timeout != null)
+            timeout.cancel();
+
+        rejectedCounts[reason.ordinal()].increment();
+        waiter.ticket.completeExceptionally(createException(reason));
+    }
+
+    private CompletableFuture<Void> reject(OverloadException.Reason reason) {
+        return CompletableFuture.failedFuture(rejected(reason));
+    }
+
+    private OverloadException createException(OverloadException.Reason reason) {
+        return new OverloadException(reason, "Request rejected by admission control: " + reason);
+    }
+
+    private void releasePermit() {
+        inFlight.decrementAndGet();
+        if (queueLength.get() > 0)
+            dispatch();
+    }
+
+    private boolean tryAcquirePermit() {
+        int maxConcurrentRequests = policy.getMaxConcurrentRequests();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxConcurrentRequests)
+                return false;
+            if (inFlight.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    private void updateServiceTime(long serviceTimeInNanos) {
+        while (true) {
+            long currentBits = serviceTimeBits.get();
+            double average = Double.longBitsToDouble(currentBits);
+            double updated = average == 0 ? serviceTimeInNanos
+                    : average + SERVICE_TIME_ALPHA * (serviceTimeInNanos - average);
+
+            if (serviceTimeBits.compareAndSet(currentBits, Double.doubleToRawLongBits(updated)))
+                return;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package loadbalancer.admission;
+
+public class AdmissionPolicy {
+
+    public static final AdmissionPolicy DEFAULT = new AdmissionPolicy(256, 1024, 0);
+
+    private final int maxConcurrentRequests;
+    private final int maxQueueLength;
+    private final long defaultTimeoutInMs;
+
+    /**
+     * @param maxConcurrentRequests requests let through to the providers at once
+     * @param maxQueueLength        requests that may wait for admission; sheddable requests only get half of it
+     * @param defaultTimeoutInMs    deadline of requests that do not bring their own; 0 lets them wait as long as the
+     *                              queue holds them
+     */
+    public AdmissionPolicy(int maxConcurrentRequests, int maxQueueLength, long defaultTimeoutInMs) {
+        if (maxConcurrentRequests <= 0)
+            throw new IllegalArgumentException("Max concurrent requests must be positive");
+        if (maxQueueLength < 0)
+            throw new IllegalArgumentException("Max queue length can not be negative");
+        if (defaultTimeoutInMs < 0)
+            throw new IllegalArgumentException("Default timeout can not be negative");
+
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxQueueLength = maxQueueLength;
+        this.defaultTimeoutInMs = defaultTimeoutInMs;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    public long getDefaultTimeoutInMs() {
+        return defaultTimeoutInMs;
+    }
+}
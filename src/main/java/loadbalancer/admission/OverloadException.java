@@ -0,0 +1,35 @@
+package loadbalancer.admission;
+
+/**
+ * Typed overload result of the admission layer. Thrown by get() and used to complete getAsync() exceptionally, so
+ * callers can tell shed load apart from a failing provider. Built without a stack trace, since rejecting has to stay
+ * cheap exactly when the load balancer is busiest.
+ */
+public class OverloadException extends RuntimeException {
+
+    public enum Reason {
+        // The wait queue had no room for the request's priority
+        QUEUE_FULL,
+        // Evicted from a full queue by a request of higher priority
+        SHED,
+        // The expected wait already exceeds the request's deadline
+        DEADLINE_UNREACHABLE,
+        // The deadline passed while the request was waiting
+        DEADLINE_EXCEEDED,
+        // Admitted, but every available provider is at its concurrency limit
+        SATURATED
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final Reason reason;
+
+    public OverloadException(Reason reason, String message) {
+        super(message, null, false, false);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,8 @@
+package loadbalancer.admission;
+
+// Highest first; under overload the lowest class is shed first
+public enum RequestPriority {
+    CRITICAL,
+    NORMAL,
+    SHEDDABLE
+}
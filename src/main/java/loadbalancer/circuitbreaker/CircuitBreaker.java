@@ -0,0 +1,132 @@
+package loadbalancer.circuitbreaker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Passive health of a single provider, fed by the outcome of real requests. All transitions are single CASes,
+ * so the request path never blocks; whoever wins a transition reports it to the listener.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public interface StateListener {
+
+        void stateChanged(CircuitBreaker circuitBreaker, State from, State to);
+    }
+
+    private static final State[] states = State.values();
+
+    private final String id;
+    private final CircuitBreakerPolicy policy;
+    private final StateListener listener;
+    private final long slowCallDurationInNanos;
+
+    private final RollingWindow window;
+
+    private final AtomicInteger state = new AtomicInteger(State.CLOSED.ordinal());
+    private final AtomicInteger trialPermits = new AtomicInteger();
+    private final AtomicInteger trialSuccesses = new AtomicInteger();
+
+    public CircuitBreaker(String id, CircuitBreakerPolicy policy, StateListener listener) {
+        if (id == null)
+            throw new IllegalArgumentException("Id can not be null");
+        if (policy == null)
+            throw new IllegalArgumentException("Circuit breaker policy can not be null");
+        if (listener == null)
+            throw new IllegalArgumentException("State listener can not be null");
+
+        this.id = id;
+        this.policy = policy;
+        this.listener = listener;
+        this.slowCallDurationInNanos = TimeUnit.MILLISECONDS.toNanos(policy.getSlowCallDurationInMs());
+        this.window = new RollingWindow(policy.getWindowDurationInMs(), policy.getBucketCount());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return states[state.get()];
+    }
+
+    // False means the request should go to another provider
+    public boolean tryAcquire() {
+        int current = state.get();
+        if (current == State.CLOSED.ordinal())
+            return true;
+        if (current == State.OPEN.ordinal())
+            return false;
+
+        int permits;
+        do {
+            permits = trialPermits.get();
+            if (permits <= 0)
+                return false;
+        } while (!trialPermits.compareAndSet(permits, permits - 1));
+        return true;
+    }
+
+    public void onCompleted(long latencyInNanos, boolean isSuccess) {
+        boolean isFailure = !isSuccess;
+        boolean isSlow = latencyInNanos >= slowCallDurationInNanos;
+
+        int current = state.get();
+        if (current == State.CLOSED.ordinal()) {
+            window.record(isFailure, isSlow);
+            if (window.isThresholdExceeded(policy.getMinimumCallCount(), policy.getFailureRateThreshold(),
+                    policy.getSlowCallRateThreshold())) {
+                transition(State.CLOSED, State.OPEN);
+            }
+        } else if (current == State.HALF_OPEN.ordinal()) {
+            if (isFailure || isSlow) {
+                transition(State.HALF_OPEN, State.OPEN);
+            } else if (trialSuccesses.incrementAndGet() >= policy.getHalfOpenTrialCount()) {
+                transition(State.HALF_OPEN, State.CLOSED);
+            }
+        }
+        // Results arriving while open belong to requests admitted before the circuit opened
+    }
+
+    // Gives back a trial permit for a request that was cancelled before it could report a result
+    public void release() {
+        if (state.get() != State.HALF_OPEN.ordinal())
+            return;
+
+        int permits;
+        do {
+            permits = trialPermits.get();
+            if (permits >= policy.getHalfOpenTrialCount())
+                return;
+        } while (!trialPermits.compareAndSet(permits, permits + 1));
+    }
+
+    // Called once the open duration has passed
+    public boolean halfOpen() {
+        trialSuccesses.set(0);
+        trialPermits.set(policy.getHalfOpenTrialCount());
+        return transition(State.OPEN, State.HALF_OPEN);
+    }
+
+    // Trials that never came back leave the circuit half open; called after a further open duration
+    public boolean reopenIfStillHalfOpen() {
+        return transition(State.HALF_OPEN, State.OPEN);
+    }
+
+    private boolean transition(State from, State to) {
+        if (!state.compareAndSet(from.ordinal(), to.ordinal()))
+            return false;
+
+        if (to == State.CLOSED)
+            window.reset();
+
+        listener.stateChanged(this, from, to);
+        return true;
+    }
+}
@@ -0,0 +1,88 @@
+package loadbalancer.circuitbreaker;
+
+public class CircuitBreakerPolicy {
+
+    public static final CircuitBreakerPolicy DEFAULT = new CircuitBreakerPolicy(
+            10 * 1000, 10, 20, 0.5, 1000, 0.8, 5 * 1000, 3);
+
+    private final long windowDurationInMs;
+    private final int bucketCount;
+    private final int minimumCallCount;
+    private final double failureRateThreshold;
+    private final long slowCallDurationInMs;
+    private final double slowCallRateThreshold;
+    private final long openDurationInMs;
+    private final int halfOpenTrialCount;
+
+    /**
+     * @param windowDurationInMs    length of the rolling window the rates are computed over
+     * @param bucketCount           number of buckets the window is split into; one bucket expires at a time
+     * @param minimumCallCount      calls the window must hold before a rate can open the circuit
+     * @param failureRateThreshold  failed / total calls at which the circuit opens, in (0, 1]
+     * @param slowCallDurationInMs  calls taking at least this long count as slow
+     * @param slowCallRateThreshold slow / total calls at which the circuit opens, in (0, 1]
+     * @param openDurationInMs      time the provider is kept out of scheduling before trial requests
+     * @param halfOpenTrialCount    trial requests that must all succeed to close the circuit again
+     */
+    public CircuitBreakerPolicy(long windowDurationInMs, int bucketCount, int minimumCallCount,
+                                double failureRateThreshold, long slowCallDurationInMs, double slowCallRateThreshold,
+                                long openDurationInMs, int halfOpenTrialCount) {
+        if (bucketCount <= 0)
+            throw new IllegalArgumentException("Bucket count must be positive");
+        if (windowDurationInMs < bucketCount)
+            throw new IllegalArgumentException("Window duration must be at least one millisecond per bucket");
+        if (minimumCallCount <= 0)
+            throw new IllegalArgumentException("Minimum call count must be positive");
+        if (!(failureRateThreshold > 0 && failureRateThreshold <= 1))
+            throw new IllegalArgumentException("Failure rate threshold must be in (0, 1]");
+        if (slowCallDurationInMs <= 0)
+            throw new IllegalArgumentException("Slow call duration must be positive");
+        if (!(slowCallRateThreshold > 0 && slowCallRateThreshold <= 1))
+            throw new IllegalArgumentException("Slow call rate threshold must be in (0, 1]");
+        if (openDurationInMs <= 0)
+            throw new IllegalArgumentException("Open duration must be positive");
+        if (halfOpenTrialCount <= 0)
+            throw new IllegalArgumentException("Half open trial count must be positive");
+
+        this.windowDurationInMs = windowDurationInMs;
+        this.bucketCount = bucketCount;
+        this.minimumCallCount = minimumCallCount;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallDurationInMs = slowCallDurationInMs;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openDurationInMs = openDurationInMs;
+        this.halfOpenTrialCount = halfOpenTrialCount;
+    }
+
+    public long getWindowDurationInMs() {
+        return windowDurationInMs;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    public int getMinimumCallCount() {
+        return minimumCallCount;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public long getSlowCallDurationInMs() {
+        return slowCallDurationInMs;
+    }
+
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public long getOpenDurationInMs() {
+        return openDurationInMs;
+    }
+
+    public int getHalfOpenTrialCount() {
+        return halfOpenTrialCount;
+    }
+}
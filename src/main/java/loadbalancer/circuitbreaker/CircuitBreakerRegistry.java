@@ -0,0 +1,156 @@
+package loadbalancer.circuitbreaker;
+
+import loadbalancer.concurrency.HashedTimingWheel;
+import loadbalancer.eventlog.EventLevel;
+import loadbalancer.eventlog.EventLogs;
+import loadbalancer.provideravailability.AvailabilityTracer;
+import loadbalancer.providerregistry.ProviderRegistryObserver;
+import provider.Provider;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one circuit breaker per registered provider. An open circuit takes the provider out of scheduling through
+ * the availability tracer, so schedulers learn about it on the same path as a failed heartbeat; after the open
+ * duration the provider is put back half open and only the trial requests are let through.
+ */
+public class CircuitBreakerRegistry implements ProviderRegistryObserver, CircuitBreaker.StateListener {
+
+    private static final String LOG_SOURCE = "circuit-breaker";
+
+    private static class Entry {
+
+        private final Provider provider;
+        private final CircuitBreaker circuitBreaker;
+        private volatile HashedTimingWheel.Timeout pendingTimeout;
+
+        private Entry(Provider provider, CircuitBreaker circuitBreaker) {
+            this.provider = provider;
+            this.circuitBreaker = circuitBreaker;
+        }
+    }
+
+    private final String providerRegistryObserverId = UUID.randomUUID().toString();
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final CircuitBreakerPolicy policy;
+
+    private final AvailabilityTracer availabilityTracer;
+
+    private final HashedTimingWheel timingWheel;
+
+    public CircuitBreakerRegistry(CircuitBreakerPolicy policy, AvailabilityTracer availabilityTracer,
+                                  HashedTimingWheel timingWheel) {
+        if (policy == null)
+            throw new IllegalArgumentException("Circuit breaker policy can not be null");
+        if (availabilityTracer == null)
+            throw new IllegalArgumentException("Availability tracer can not be null");
+        if (timingWheel == null)
+            throw new IllegalArgumentException("HashedTimingWheel can not be null");
+
+        this.policy = policy;
+        this.availabilityTracer = availabilityTracer;
+        this.timingWheel = timingWheel;
+    }
+
+    @Override
+    public String getObserverId() {
+        return providerRegistryObserverId;
+    }
+
+    @Override
+    public void providerRegistered(Provider provider) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(provider.getId(), policy, this);
+        entries.put(provider.getId(), new Entry(provider, circuitBreaker));
+    }
+
+    @Override
+    public void providerUnregistered(Provider provider) {
+        Entry entry = entries.remove(provider.getId());
+        if (entry == null)
+            return;
+
+        synchronized (entry) {
+            cancelPendingTimeout(entry);
+        }
+    }
+
+    // Null when the provider is not registered
+    public CircuitBreaker getCircuitBreaker(Provider provider) {
+        Entry entry = entries.get(provider.getId());
+        return entry == null ? null : entry.circuitBreaker;
+    }
+
+    public boolean tryAcquire(Provider provider) {
+        Entry entry = entries.get(provider.getId());
+        return entry == null || entry.circuitBreaker.tryAcquire();
+    }
+
+    public void onCompleted(Provider provider, long latencyInNanos, boolean isSuccess) {
+        Entry entry = entries.get(provider.getId());
+        if (entry != null)
+            entry.circuitBreaker.onCompleted(latencyInNanos, isSuccess);
+    }
+
+    public void release(Provider provider) {
+        Entry entry = entries.get(provider.getId());
+        if (entry != null)
+            entry.circuitBreaker.release();
+    }
+
+    @Override
+    public void stateChanged(CircuitBreaker circuitBreaker, CircuitBreaker.State from, CircuitBreaker.State to) {
+        Entry entry = entries.get(circuitBreaker.getId());
+        if (entry == null || entry.circuitBreaker != circuitBreaker)
+            return;
+
+        switch (to) {
+            case OPEN -> EventLogs.get().log(EventLevel.INFO, LOG_SOURCE, "Circuit opened for provider id: %s", circuitBreaker.getId());
+            case HALF_OPEN -> EventLogs.get().log(EventLevel.INFO, LOG_SOURCE, "Circuit half opened for provider id: %s", circuitBreaker.getId());
+            case CLOSED -> EventLogs.get().log(EventLevel.INFO, LOG_SOURCE, "Circuit closed for provider id: %s", circuitBreaker.getId());
+        }
+
+        // Callbacks of transitions racing on different threads can arrive in any order, e.g. the wheel half opening
+        // while a failed trial reopens. Each applies the state the circuit is in now rather than the one it reports,
+        // so whichever runs last leaves the tracer and the pending timeout matching the circuit
+        synchronized (entry) {
+            // Unregistered meanwhile; nothing may be scheduled for it any more
+            if (entries.get(circuitBreaker.getId()) != entry)
+                return;
+
+            cancelPendingTimeout(entry);
+            switch (circuitBreaker.getState()) {
+                case OPEN -> {
+                    updateCircuitOpen(entry, true);
+                    entry.pendingTimeout = timingWheel.schedule(() -> entry.circuitBreaker.halfOpen(),
+                            policy.getOpenDurationInMs());
+                }
+                case HALF_OPEN -> {
+                    updateCircuitOpen(entry, false);
+                    entry.pendingTimeout = timingWheel.schedule(() -> entry.circuitBreaker.reopenIfStillHalfOpen(),
+                            policy.getOpenDurationInMs());
+                }
+                case CLOSED -> updateCircuitOpen(entry, false);
+            }
+        }
+    }
+
+    private void updateCircuitOpen(Entry entry, boolean isOpen) {
+        try {
+            availabilityTracer.updateCircuitOpen(entry.provider, isOpen);
+        } catch (IllegalStateException e) {
+            // Provider was unregistered while its circuit changed state
+        }
+    }
+
+    private void cancelPendingTimeout(Entry entry) {
+        HashedTimingWheel.Timeout pendingTimeout = entry.pendingTimeout;
+        if (pendingTimeout != null) {
+            pendingTimeout.cancel();
+            entry.pendingTimeout = null;
+        }
+    }
+}
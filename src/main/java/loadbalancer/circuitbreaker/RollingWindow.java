@@ -0,0 +1,85 @@
+package loadbalancer.circuitbreaker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Call outcomes over the last window, kept in a ring of time buckets inside one AtomicLongArray. A bucket is
+ * claimed for its epoch with a CAS and cleared by the winner; an increment racing with that clear may be lost,
+ * which only makes the rates slightly approximate.
+ */
+class RollingWindow {
+
+    // Per bucket: epoch, calls, failures, slow calls
+    private static final int STRIDE = 4;
+    private static final int EPOCH = 0;
+    private static final int CALLS = 1;
+    private static final int FAILURES = 2;
+    private static final int SLOW_CALLS = 3;
+
+    private static final long NO_EPOCH = Long.MIN_VALUE;
+
+    private final int bucketCount;
+    private final long bucketDurationInNanos;
+    private final AtomicLongArray buckets;
+
+    RollingWindow(long windowDurationInMs, int bucketCount) {
+        this.bucketCount = bucketCount;
+        this.bucketDurationInNanos = TimeUnit.MILLISECONDS.toNanos(windowDurationInMs) / bucketCount;
+        this.buckets = new AtomicLongArray(bucketCount * STRIDE);
+        reset();
+    }
+
+    void record(boolean isFailure, boolean isSlow) {
+        long epoch = currentEpoch();
+        int base = (int) Math.floorMod(epoch, (long) bucketCount) * STRIDE;
+
+        long bucketEpoch = buckets.get(base + EPOCH);
+        if (bucketEpoch != epoch) {
+            if (bucketEpoch > epoch)
+                return;
+
+            if (buckets.compareAndSet(base + EPOCH, bucketEpoch, epoch)) {
+                buckets.set(base + CALLS, 0);
+                buckets.set(base + FAILURES, 0);
+                buckets.set(base + SLOW_CALLS, 0);
+            }
+        }
+
+        buckets.incrementAndGet(base + CALLS);
+        if (isFailure)
+            buckets.incrementAndGet(base + FAILURES);
+        if (isSlow)
+            buckets.incrementAndGet(base + SLOW_CALLS);
+    }
+
+    boolean isThresholdExceeded(int minimumCallCount, double failureRateThreshold, double slowCallRateThreshold) {
+        long oldestEpoch = currentEpoch() - bucketCount + 1;
+        long calls = 0;
+        long failures = 0;
+        long slowCalls = 0;
+        for (int base = 0; base < buckets.length(); base += STRIDE) {
+            if (buckets.get(base + EPOCH) < oldestEpoch)
+                continue;
+
+            calls += buckets.get(base + CALLS);
+            failures += buckets.get(base + FAILURES);
+            slowCalls += buckets.get(base + SLOW_CALLS);
+        }
+
+        if (calls < minimumCallCount)
+            return false;
+
+        return failures >= failureRateThreshold * calls || slowCalls >= slowCallRateThreshold * calls;
+    }
+
+    void reset() {
+        for (int base = 0; base < buckets.length(); base += STRIDE) {
+            buckets.set(base + EPOCH, NO_EPOCH);
+        }
+    }
+
+    private long currentEpoch() {
+        return Math.floorDiv(System.nanoTime(), bucketDurationInNanos);
+    }
+}
@@ -0,0 +1,269 @@
+package loadbalancer.concurrency;
+
+import loadbalancer.eventlog.EventLevel;
+import loadbalancer.eventlog.EventLogs;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-threaded hashed timing wheel. One ticker thread advances the wheel and hands expired
+ * timeouts to a small worker pool, so scheduling and cancelling a timeout are O(1) regardless of
+ * how many timeouts are pending.
+ */
+public class HashedTimingWheel {
+
+    public interface Timeout {
+
+        void cancel();
+
+        boolean isCancelled();
+    }
+
+    private static final int STATE_WAITING = 0;
+    private static final int STATE_RUNNING = 1;
+    private static final int STATE_CANCELLED = 2;
+
+    private class WheelTimeout implements Timeout {
+
+        private final Runnable task;
+        private final long periodInNanos;
+        private final AtomicInteger state = new AtomicInteger(STATE_WAITING);
+
+        // Set before the timeout is queued, by the scheduling thread or by the worker re-arming a periodic
+        // timeout. The pending queue hands it over to the ticker, and only one thread owns it at a time
+        private long deadline;
+
+        // Only touched by the ticker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private WheelTimeout next;
+        private WheelTimeout prev;
+
+        WheelTimeout(Runnable task, long deadline, long periodInNanos) {
+            this.task = task;
+            this.deadline = deadline;
+            this.periodInNanos = periodInNanos;
+        }
+
+        @Override
+        public void cancel() {
+            if (state.getAndSet(STATE_CANCELLED) != STATE_CANCELLED) {
+                cancelledTimeouts.add(this);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(STATE_WAITING, STATE_RUNNING))
+                return;
+
+            try {
+                workers.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                state.set(STATE_CANCELLED);
+            }
+        }
+
+        private void run() {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                EventLogs.get().log(EventLevel.WARN, "timing-wheel", "Timing wheel %s task failed: %s", name, e);
+            } finally {
+                if (periodInNanos > 0 && state.compareAndSet(STATE_RUNNING, STATE_WAITING)) {
+                    deadline += periodInNanos;
+                    pendingTimeouts.add(this);
+                }
+            }
+        }
+    }
+
+    private static class Bucket {
+
+        private WheelTimeout head;
+        private WheelTimeout tail;
+
+        void add(WheelTimeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(WheelTimeout timeout) {
+            WheelTimeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void expireTimeouts(long tickDeadline) {
+            WheelTimeout timeout = head;
+            while (timeout != null) {
+                WheelTimeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadline <= tickDeadline) {
+                    remove(timeout);
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private final String name;
+    private final long tickDurationInNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+
+    private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final ExecutorService workers;
+    private final Thread ticker;
+    private final long startTime;
+
+    private volatile boolean isStopped;
+    private long tick;
+
+    public HashedTimingWheel(String name, long tickDurationInMs, int ticksPerWheel, int workerCount) {
+        if (tickDurationInMs <= 0)
+            throw new IllegalArgumentException("Tick duration must be positive");
+
+        if (ticksPerWheel <= 0)
+            throw new IllegalArgumentException("Ticks per wheel must be positive");
+
+        if (workerCount <= 0)
+            throw new IllegalArgumentException("Worker count must be positive");
+
+        this.name = name;
+        this.tickDurationInNanos = TimeUnit.MILLISECONDS.toNanos(tickDurationInMs);
+
+        int wheelSize = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        this.wheel = new Bucket[Math.max(wheelSize, 1)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+
+        this.workers = Executors.newFixedThreadPool(workerCount, new DaemonThreadFactory(name + "-worker"));
+
+        this.startTime = System.nanoTime();
+        this.ticker = new Thread(this::runTicker, name + "-ticker");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delayInMs) {
+        return addTimeout(task, delayInMs, 0);
+    }
+
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelayInMs, long periodInMs) {
+        if (periodInMs <= 0)
+            throw new IllegalArgumentException("Period must be positive");
+
+        return addTimeout(task, initialDelayInMs, TimeUnit.MILLISECONDS.toNanos(periodInMs));
+    }
+
+    public void stop() {
+        isStopped = true;
+        ticker.interrupt();
+        workers.shutdownNow();
+    }
+
+    private Timeout addTimeout(Runnable task, long delayInMs, long periodInNanos) {
+        if (task == null)
+            throw new IllegalArgumentException("Task can not be null");
+
+        if (isStopped)
+            throw new IllegalStateException("Timing wheel is already stopped: " + name);
+
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(delayInMs, 0));
+        WheelTimeout timeout = new WheelTimeout(task, deadline, periodInNanos);
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    private void runTicker() {
+        while (!isStopped) {
+            long tickDeadline = waitForNextTick();
+            if (tickDeadline < 0)
+                return;
+
+            removeCancelledTimeouts();
+            transferPendingTimeouts();
+            wheel[(int) (tick & mask)].expireTimeouts(tickDeadline);
+            tick++;
+        }
+    }
+
+    private long waitForNextTick() {
+        long tickDeadline = tickDurationInNanos * (tick + 1);
+        while (true) {
+            long sleepTimeInNanos = tickDeadline - (System.nanoTime() - startTime);
+            if (sleepTimeInNanos <= 0)
+                return tickDeadline;
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepTimeInNanos);
+            } catch (InterruptedException e) {
+                if (isStopped)
+                    return -1;
+            }
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        WheelTimeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.isCancelled())
+                continue;
+
+            long calculatedTick = timeout.deadline / tickDurationInNanos;
+            timeout.remainingRounds = (calculatedTick - tick) / wheel.length;
+
+            // Deadlines already in the past go to the current tick
+            long ticks = Math.max(calculatedTick, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelledTimeouts() {
+        WheelTimeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            Bucket bucket = timeout.bucket;
+            if (bucket != null) {
+                bucket.remove(timeout);
+            }
+        }
+    }
+}
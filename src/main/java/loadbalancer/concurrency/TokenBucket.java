@@ -0,0 +1,60 @@
+package loadbalancer.concurrency;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket refilled by events rather than by time, e.g. a fraction of a token per request. Tokens are
+ * kept in thousandths so fractional refills add up exactly.
+ */
+public class TokenBucket {
+
+    private static final long UNITS_PER_TOKEN = 1000;
+
+    private final AtomicLong units;
+    private final long maxUnits;
+
+    public TokenBucket(double maxTokens, double initialTokens) {
+        if (!(maxTokens > 0))
+            throw new IllegalArgumentException("Max tokens must be positive");
+        if (!(initialTokens >= 0 && initialTokens <= maxTokens))
+            throw new IllegalArgumentException("Initial tokens must be in [0, max tokens]");
+
+        this.maxUnits = toUnits(maxTokens);
+        this.units = new AtomicLong(toUnits(initialTokens));
+    }
+
+    public void deposit(double tokens) {
+        long deposit = toUnits(tokens);
+        if (deposit <= 0)
+            return;
+
+        // A full bucket is the common case under steady load; skip the CAS then
+        long current;
+        while ((current = units.get()) < maxUnits) {
+            if (units.compareAndSet(current, Math.min(maxUnits, current + deposit)))
+                return;
+        }
+    }
+
+    public boolean tryAcquire() {
+        long current;
+        while ((current = units.get()) >= UNITS_PER_TOKEN) {
+            if (units.compareAndSet(current, current - UNITS_PER_TOKEN))
+                return true;
+        }
+        return false;
+    }
+
+    // Gives back a token that was acquired but not used
+    public void release() {
+        deposit(1);
+    }
+
+    public double getTokens() {
+        return units.get() / (double) UNITS_PER_TOKEN;
+    }
+
+    private static long toUnits(double tokens) {
+        return Math.round(tokens * UNITS_PER_TOKEN);
+    }
+}
@@ -0,0 +1,41 @@
+package loadbalancer.concurrency;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates a virtual-thread-per-task executor when the running JVM supports it (21+). The project
+ * still compiles for 17, so the factory is looked up reflectively and older runtimes fall back to a
+ * cached pool of daemon platform threads.
+ */
+public final class VirtualThreadExecutors {
+
+    private VirtualThreadExecutors() {
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return findVirtualThreadFactoryMethod() != null;
+    }
+
+    public static ExecutorService newPerTaskExecutor(String fallbackThreadPrefix) {
+        Method factoryMethod = findVirtualThreadFactoryMethod();
+        if (factoryMethod != null) {
+            try {
+                return (ExecutorService) factoryMethod.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Fall through to the platform thread pool
+            }
+        }
+
+        return Executors.newCachedThreadPool(new DaemonThreadFactory(fallbackThreadPrefix));
+    }
+
+    private static Method findVirtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package loadbalancer.eventlog;
+
+import loadbalancer.concurrency.MpscRingBuffer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands events to a sink on a single background writer. Logging threads only check the level and offer the
+ * event to a bounded lock-free ring buffer; formatting and I/O happen on the writer. When the buffer is full the
+ * event is dropped and counted rather than blocking the caller.
+ */
+public class AsyncEventLog implements EventLog {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final long CLOSE_TIMEOUT_IN_MS = 1000;
+
+    private final EventSink sink;
+    private final MpscRingBuffer<LogEvent> events;
+    private final LongAdder droppedEventCount = new LongAdder();
+
+    private volatile EventLevel minimumLevel;
+
+    private final Thread writer;
+    private volatile boolean isWriterWaiting;
+    private volatile boolean isClosed;
+
+    public AsyncEventLog(EventSink sink, EventLevel minimumLevel) {
+        this(sink, minimumLevel, DEFAULT_CAPACITY);
+    }
+
+    public AsyncEventLog(EventSink sink, EventLevel minimumLevel, int capacity) {
+        if (sink == null)
+            throw new IllegalArgumentException("Sink can not be null");
+        if (minimumLevel == null)
+            throw new IllegalArgumentException("Minimum level can not be null");
+
+        this.sink = sink;
+        this.minimumLevel = minimumLevel;
+        this.events = new MpscRingBuffer<>(capacity);
+
+        writer = new Thread(this::write, "event-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public EventLevel getMinimumLevel() {
+        return minimumLevel;
+    }
+
+    public void setMinimumLevel(EventLevel minimumLevel) {
+        if (minimumLevel == null)
+            throw new IllegalArgumentException("Minimum level can not be null");
+
+        this.minimumLevel = minimumLevel;
+    }
+
+    public long getDroppedEventCount() {
+        return droppedEventCount.sum();
+    }
+
+    @Override
+    public boolean isEnabled(EventLevel level) {
+        return level != EventLevel.OFF && level.compareTo(minimumLevel) >= 0;
+    }
+
+    @Override
+    public void log(EventLevel level, String source, String format, Object argument) {
+        if (isEnabled(level))
+            publish(level, source, format, new Object[]{argument});
+    }
+
+    @Override
+    public void log(EventLevel level, String source, String format, Object firstArgument, Object secondArgument) {
+        if (isEnabled(level))
+            publish(level, source, format, new Object[]{firstArgument, secondArgument});
+    }
+
+    @Override
+    public void log(EventLevel level, String source, String format, Object... arguments) {
+        if (isEnabled(level))
+            publish(level, source, format, arguments);
+    }
+
+    // Writes out what is already queued, then stops the writer
+    public void close() {
+        isClosed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_TIMEOUT_IN_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(EventLevel level, String source, String format, Object[] arguments) {
+        if (isClosed || !events.offer(new LogEvent(System.currentTimeMillis(), level, source, format, arguments))) {
+            droppedEventCount.increment();
+            return;
+        }
+
+        if (isWriterWaiting)
+            LockSupport.unpark(writer);
+    }
+
+    private void write() {
+        while (true) {
+            LogEvent event;
+            while ((event = events.poll()) != null) {
+                try {
+                    sink.write(event);
+                } catch (RuntimeException e) {
+                    droppedEventCount.increment();
+                }
+            }
+
+            if (isClosed && events.isEmpty())
+                return;
+
+            isWriterWaiting = true;
+            if (events.isEmpty() && !isClosed) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_IN_MS));
+            }
+            isWriterWaiting = false;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package loadbalancer.eventlog;
+
+public class ConsoleEventSink implements EventSink {
+
+    @Override
+    public void write(LogEvent event) {
+        System.out.println(event.getMessage());
+    }
+}
@@ -0,0 +1,8 @@
+package loadbalancer.eventlog;
+
+public enum EventLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    OFF
+}
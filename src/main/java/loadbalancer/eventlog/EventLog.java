@@ -0,0 +1,13 @@
+package loadbalancer.eventlog;
+
+public interface EventLog {
+
+    boolean isEnabled(EventLevel level);
+
+    // Fixed arities avoid the varargs array for the common call sites
+    void log(EventLevel level, String source, String format, Object argument);
+
+    void log(EventLevel level, String source, String format, Object firstArgument, Object secondArgument);
+
+    void log(EventLevel level, String source, String format, Object... arguments);
+}
@@ -0,0 +1,35 @@
+package loadbalancer.eventlog;
+
+/**
+ * Process-wide event log used by the load balancer components. Defaults to an asynchronous console log at
+ * INFO, so per-heartbeat DEBUG events are not even created unless the level is lowered or another log is set.
+ */
+public final class EventLogs {
+
+    private static volatile EventLog eventLog;
+
+    private EventLogs() {
+    }
+
+    public static EventLog get() {
+        EventLog current = eventLog;
+        if (current != null)
+            return current;
+
+        synchronized (EventLogs.class) {
+            if (eventLog == null) {
+                AsyncEventLog defaultEventLog = new AsyncEventLog(new ConsoleEventSink(), EventLevel.INFO);
+                Runtime.getRuntime().addShutdownHook(new Thread(defaultEventLog::close, "event-log-shutdown"));
+                eventLog = defaultEventLog;
+            }
+            return eventLog;
+        }
+    }
+
+    public static void set(EventLog eventLog) {
+        if (eventLog == null)
+            throw new IllegalArgumentException("Event log can not be null");
+
+        EventLogs.eventLog = eventLog;
+    }
+}
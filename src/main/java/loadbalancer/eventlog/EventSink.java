@@ -0,0 +1,7 @@
+package loadbalancer.eventlog;
+
+public interface EventSink {
+
+    // Called from the writer thread only
+    void write(LogEvent event);
+}
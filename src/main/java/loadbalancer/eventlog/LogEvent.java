@@ -0,0 +1,48 @@
+package loadbalancer.eventlog;
+
+/**
+ * An event as it was logged: the format and its arguments are kept apart, and the message is only built when a
+ * sink asks for it, on the writer thread.
+ */
+public final class LogEvent {
+
+    private static final Object[] noArguments = new Object[0];
+
+    private final long timestampInMs;
+    private final EventLevel level;
+    private final String source;
+    private final String format;
+    private final Object[] arguments;
+
+    public LogEvent(long timestampInMs, EventLevel level, String source, String format, Object[] arguments) {
+        this.timestampInMs = timestampInMs;
+        this.level = level;
+        this.source = source;
+        this.format = format;
+        this.arguments = arguments == null ? noArguments : arguments;
+    }
+
+    public long getTimestampInMs() {
+        return timestampInMs;
+    }
+
+    public EventLevel getLevel() {
+        return level;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public Object[] getArguments() {
+        return arguments;
+    }
+
+    public String getMessage() {
+        return arguments.length == 0 ? format : String.format(format, arguments);
+    }
+}
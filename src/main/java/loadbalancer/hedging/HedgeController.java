@@ -0,0 +1,74 @@
+package loadbalancer.hedging;
+
+import loadbalancer.concurrency.TokenBucket;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether and when a request may be hedged. Every request deposits the allowed extra load fraction of a
+ * token and every hedge takes a whole one, so hedges can never exceed that fraction of requests beyond a small
+ * burst, no matter how slow providers get.
+ */
+public class HedgeController {
+
+    private final HedgingPolicy policy;
+    private final HedgeDelay delay;
+    private final TokenBucket budget;
+
+    private final LongAdder sentHedgeCount = new LongAdder();
+    private final LongAdder wonHedgeCount = new LongAdder();
+
+    public HedgeController(HedgingPolicy policy) {
+        if (policy == null)
+            throw new IllegalArgumentException("Hedging policy can not be null");
+
+        this.policy = policy;
+        this.delay = new HedgeDelay(policy);
+        this.budget = new TokenBucket(HedgingPolicy.DEFAULT_MAX_BURST, 0);
+    }
+
+    public HedgingPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getDelayInMs() {
+        return delay.getDelayInMs();
+    }
+
+    public void requestStarted() {
+        budget.deposit(policy.getMaxExtraLoadFraction());
+    }
+
+    /**
+     * Feeds the delay with how long the primary call took, measured from the request's start. A primary cancelled
+     * because its hedge won reports how long it had run by then, so slow primaries still push the percentile up.
+     */
+    public void primaryCompleted(long latencyInNanos) {
+        delay.record(latencyInNanos);
+    }
+
+    public boolean tryAcquireHedge() {
+        return budget.tryAcquire();
+    }
+
+    // For a hedge that could not be sent, e.g. no other provider was available
+    public void releaseHedge() {
+        budget.release();
+    }
+
+    public void hedgeSent() {
+        sentHedgeCount.increment();
+    }
+
+    public void hedgeWon() {
+        wonHedgeCount.increment();
+    }
+
+    public long getSentHedgeCount() {
+        return sentHedgeCount.sum();
+    }
+
+    public long getWonHedgeCount() {
+        return wonHedgeCount.sum();
+    }
+}
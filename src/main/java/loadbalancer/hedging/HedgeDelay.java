@@ -0,0 +1,62 @@
+package loadbalancer.hedging;
+
+import loadbalancer.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedge delay of a policy. For a percentile delay, latencies are recorded into a histogram that is swapped out
+ * every window; the percentile of the finished window becomes the delay for the next one, so the delay follows
+ * the live latency without computing a percentile per request.
+ */
+public class HedgeDelay {
+
+    private static final long WINDOW_DURATION_IN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    // Below this a window's percentile is too noisy to act on and the previous delay is kept
+    private static final long MIN_WINDOW_SAMPLE_COUNT = 100;
+
+    private final HedgingPolicy policy;
+
+    private volatile LatencyHistogram window = new LatencyHistogram();
+    private final AtomicLong windowEndsAt;
+
+    private volatile long delayInMs;
+
+    public HedgeDelay(HedgingPolicy policy) {
+        if (policy == null)
+            throw new IllegalArgumentException("Hedging policy can not be null");
+
+        this.policy = policy;
+        this.delayInMs = policy.getDelayInMs();
+        this.windowEndsAt = new AtomicLong(System.nanoTime() + WINDOW_DURATION_IN_NANOS);
+    }
+
+    public long getDelayInMs() {
+        return delayInMs;
+    }
+
+    public void record(long latencyInNanos) {
+        if (!policy.isPercentileDelay())
+            return;
+
+        long now = System.nanoTime();
+        long endsAt = windowEndsAt.get();
+        if (now - endsAt >= 0 && windowEndsAt.compareAndSet(endsAt, now + WINDOW_DURATION_IN_NANOS))
+            rotate();
+
+        window.record(latencyInNanos);
+    }
+
+    // Only the thread that moved the window end gets here
+    private void rotate() {
+        LatencyHistogram finished = window;
+        window = new LatencyHistogram();
+        if (finished.getCount() < MIN_WINDOW_SAMPLE_COUNT)
+            return;
+
+        long percentileInMs = TimeUnit.NANOSECONDS.toMillis(finished.getValueAtPercentile(policy.getLatencyPercentile()));
+        delayInMs = Math.max(policy.getDelayInMs(), percentileInMs);
+    }
+}
@@ -0,0 +1,56 @@
+package loadbalancer.hedging;
+
+public class HedgingPolicy {
+
+    // Hedges that may be sent back to back after a quiet period
+    public static final double DEFAULT_MAX_BURST = 10;
+
+    private final long delayInMs;
+    private final double latencyPercentile;
+    private final double maxExtraLoadFraction;
+
+    /**
+     * @param delayInMs            fixed hedge delay; with a latency percentile, the floor and the delay used until
+     *                             enough latencies are known
+     * @param latencyPercentile    percentile of recent get() latencies to use as the delay, e.g. 95; 0 for a fixed
+     *                             delay
+     * @param maxExtraLoadFraction hedges allowed per request, e.g. 0.05 for at most 5% extra load
+     */
+    public HedgingPolicy(long delayInMs, double latencyPercentile, double maxExtraLoadFraction) {
+        if (delayInMs <= 0)
+            throw new IllegalArgumentException("Hedge delay must be positive");
+        if (!(latencyPercentile == 0 || (latencyPercentile > 0 && latencyPercentile < 100)))
+            throw new IllegalArgumentException("Latency percentile must be 0 or in (0, 100)");
+        if (!(maxExtraLoadFraction > 0 && maxExtraLoadFraction <= 1))
+            throw new IllegalArgumentException("Max extra load fraction must be in (0, 1]");
+
+        this.delayInMs = delayInMs;
+        this.latencyPercentile = latencyPercentile;
+        this.maxExtraLoadFraction = maxExtraLoadFraction;
+    }
+
+    public static HedgingPolicy fixedDelay(long delayInMs, double maxExtraLoadFraction) {
+        return new HedgingPolicy(delayInMs, 0, maxExtraLoadFraction);
+    }
+
+    public static HedgingPolicy percentileDelay(double latencyPercentile, long minDelayInMs,
+                                                double maxExtraLoadFraction) {
+        return new HedgingPolicy(minDelayInMs, latencyPercentile, maxExtraLoadFraction);
+    }
+
+    public long getDelayInMs() {
+        return delayInMs;
+    }
+
+    public double getLatencyPercentile() {
+        return latencyPercentile;
+    }
+
+    public boolean isPercentileDelay() {
+        return latencyPercentile > 0;
+    }
+
+    public double getMaxExtraLoadFraction() {
+        return maxExtraLoadFraction;
+    }
+}
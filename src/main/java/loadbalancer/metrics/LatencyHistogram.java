@@ -0,0 +1,159 @@
+package loadbalancer.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-memory log-linear histogram of nanosecond latencies, in the spirit of HdrHistogram. Every power of two
+ * is split into 16 linear sub-buckets, so any recorded value is reported within 6.25% of its true value.
+ * Recording is a few bit operations and one atomic increment, with no allocation. Counts and the max start in a
+ * single stripe and, like a LongAdder, spread over more stripes once threads collide on an increment.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    // Each stripe holds the bucket counts followed by the stripe's max
+    private static final int MAX_INDEX = BUCKET_COUNT;
+    private static final int STRIPE_LENGTH = BUCKET_COUNT + 1;
+
+    private static final int MAX_STRIPE_COUNT = Integer.highestOneBit(
+            Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private volatile AtomicLongArray[] stripes = { new AtomicLongArray(STRIPE_LENGTH) };
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+
+    public void record(long valueInNanos) {
+        long value = Math.max(0, valueInNanos);
+        AtomicLongArray[] currentStripes = stripes;
+        AtomicLongArray stripe = currentStripes[stripeIndex(currentStripes.length)];
+
+        int index = indexOf(value);
+        long count = stripe.get(index);
+        if (!stripe.compareAndSet(index, count, count + 1)) {
+            stripe.incrementAndGet(index);
+            expand(currentStripes);
+        }
+        totalCount.increment();
+        totalValue.add(value);
+
+        // Only written while the max still grows, so the line stays shared once latencies settle
+        long currentMax = stripe.get(MAX_INDEX);
+        while (value > currentMax && !stripe.compareAndSet(MAX_INDEX, currentMax, value)) {
+            currentMax = stripe.get(MAX_INDEX);
+        }
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public HistogramSnapshot snapshot() {
+        AtomicLongArray[] currentStripes = stripes;
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts[i] = getBucketCount(currentStripes, i);
+            count += bucketCounts[i];
+        }
+
+        long max = 0;
+        for (AtomicLongArray stripe : currentStripes)
+            max = Math.max(max, stripe.get(MAX_INDEX));
+
+        double mean = count == 0 ? 0 : (double) totalValue.sum() / count;
+        return new HistogramSnapshot(count, mean, max,
+                valueAtPercentile(bucketCounts, count, 50.0),
+                valueAtPercentile(bucketCounts, count, 90.0),
+                valueAtPercentile(bucketCounts, count, 99.0),
+                valueAtPercentile(bucketCounts, count, 99.9));
+    }
+
+    /**
+     * Cheaper than a full snapshot when only one percentile is needed, e.g. for a hedging delay. Walks the live
+     * counts twice instead of copying them, so it allocates nothing; values recorded in between can only move the
+     * result to an earlier bucket that was already reached.
+     */
+    public long getValueAtPercentile(double percentile) {
+        AtomicLongArray[] currentStripes = stripes;
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            count += getBucketCount(currentStripes, i);
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += getBucketCount(currentStripes, i);
+            if (seen >= rank)
+                return highestValueOf(i);
+        }
+        return highestValueOf(BUCKET_COUNT - 1);
+    }
+
+    private static long valueAtPercentile(long[] bucketCounts, long count, double percentile) {
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank)
+                return highestValueOf(i);
+        }
+        return highestValueOf(bucketCounts.length - 1);
+    }
+
+    private static long getBucketCount(AtomicLongArray[] currentStripes, int index) {
+        long count = 0;
+        for (AtomicLongArray stripe : currentStripes)
+            count += stripe.get(index);
+        return count;
+    }
+
+    // A thread keeps its stripe until the stripes double; virtual threads spread the same way, by id
+    private static int stripeIndex(int stripeCount) {
+        if (stripeCount == 1)
+            return 0;
+
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (stripeCount - 1);
+    }
+
+    // Counts in existing stripes stay where they are; readers always sum every stripe
+    private synchronized void expand(AtomicLongArray[] contendedStripes) {
+        if (stripes != contendedStripes || contendedStripes.length >= MAX_STRIPE_COUNT)
+            return;
+
+        AtomicLongArray[] expanded = Arrays.copyOf(contendedStripes, contendedStripes.length * 2);
+        for (int i = contendedStripes.length; i < expanded.length; i++)
+            expanded[i] = new AtomicLongArray(STRIPE_LENGTH);
+        stripes = expanded;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowest = ((long) (SUB_BUCKET_COUNT | (index & (SUB_BUCKET_COUNT - 1)))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
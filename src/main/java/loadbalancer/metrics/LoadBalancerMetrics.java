@@ -0,0 +1,171 @@
+package loadbalancer.metrics;
+
+import loadbalancer.providerregistry.ProviderRegistryObserver;
+import provider.Provider;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-provider counters and histograms, kept for as long as the provider is registered. Recording only looks up
+ * the provider's cells and bumps striped counters, so it can stay enabled on the request path. Values are read
+ * either as a pull-style {@link #snapshot()} or through JMX once {@link #registerMBeans(String)} is called.
+ */
+public class LoadBalancerMetrics implements LoadBalancerMetricsMXBean, ProviderRegistryObserver {
+
+    private static final String DOMAIN = "loadbalancer";
+
+    private final String observerId = UUID.randomUUID().toString();
+
+    private final Map<String, ProviderMetrics> providerMetrics = new ConcurrentHashMap<>();
+
+    private LongSupplier schedulerLockWaitTimeInNanos = () -> 0;
+    private LongSupplier schedulerLockAcquisitionCount = () -> 0;
+
+    private final Object lock = new Object();
+    private MBeanServer mBeanServer;
+    private String mBeanName;
+
+    public void bindSchedulerLockStatistics(LongSupplier lockWaitTimeInNanos, LongSupplier lockAcquisitionCount) {
+        this.schedulerLockWaitTimeInNanos = lockWaitTimeInNanos;
+        this.schedulerLockAcquisitionCount = lockAcquisitionCount;
+    }
+
+    // Null when the provider is not registered, e.g. a call completing after unregister
+    public ProviderMetrics getProviderMetrics(String providerId) {
+        return providerMetrics.get(providerId);
+    }
+
+    public MetricsSnapshot snapshot() {
+        var providers = new ArrayList<ProviderMetricsSnapshot>(providerMetrics.size());
+        providerMetrics.values().forEach(metrics -> providers.add(metrics.snapshot()));
+        return new MetricsSnapshot(System.currentTimeMillis(), providers,
+                getSchedulerLockWaitTimeInNanos(), getSchedulerLockAcquisitionCount());
+    }
+
+    public void registerMBeans(String loadBalancerName) {
+        synchronized (lock) {
+            if (mBeanServer != null)
+                throw new IllegalStateException("Metrics MBeans are already registered as " + mBeanName);
+
+            mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            mBeanName = ObjectName.quote(loadBalancerName);
+            register(loadBalancerObjectName(), this);
+            providerMetrics.values().forEach(this::registerProviderMBean);
+        }
+    }
+
+    public void unregisterMBeans() {
+        synchronized (lock) {
+            if (mBeanServer == null)
+                return;
+
+            providerMetrics.values().forEach(this::unregisterProviderMBean);
+            unregister(loadBalancerObjectName());
+            mBeanServer = null;
+            mBeanName = null;
+        }
+    }
+
+    @Override
+    public String getObserverId() {
+        return observerId;
+    }
+
+    @Override
+    public void providerRegistered(Provider provider) {
+        var metrics = new ProviderMetrics(provider.getId());
+        providerMetrics.put(provider.getId(), metrics);
+        synchronized (lock) {
+            registerProviderMBean(metrics);
+        }
+    }
+
+    @Override
+    public void providerUnregistered(Provider provider) {
+        var metrics = providerMetrics.remove(provider.getId());
+        if (metrics != null) {
+            synchronized (lock) {
+                unregisterProviderMBean(metrics);
+            }
+        }
+    }
+
+    @Override
+    public int getProviderCount() {
+        return providerMetrics.size();
+    }
+
+    @Override
+    public Map<String, Long> getSelectionCounts() {
+        Map<String, Long> selectionCounts = new TreeMap<>();
+        providerMetrics.forEach((id, metrics) -> selectionCounts.put(id, metrics.getSelectionCount()));
+        return selectionCounts;
+    }
+
+    @Override
+    public long getSchedulerLockWaitTimeInNanos() {
+        return schedulerLockWaitTimeInNanos.getAsLong();
+    }
+
+    @Override
+    public long getSchedulerLockAcquisitionCount() {
+        return schedulerLockAcquisitionCount.getAsLong();
+    }
+
+    private void registerProviderMBean(ProviderMetrics metrics) {
+        if (mBeanServer != null)
+            register(providerObjectName(metrics.getProviderId()), metrics);
+    }
+
+    private void unregisterProviderMBean(ProviderMetrics metrics) {
+        if (mBeanServer != null)
+            unregister(providerObjectName(metrics.getProviderId()));
+    }
+
+    private ObjectName loadBalancerObjectName() {
+        return objectName("type=LoadBalancer,name=" + mBeanName);
+    }
+
+    private ObjectName providerObjectName(String providerId) {
+        return objectName("type=Provider,loadBalancer=" + mBeanName + ",name=" + ObjectName.quote(providerId));
+    }
+
+    private ObjectName objectName(String properties) {
+        try {
+            return new ObjectName(DOMAIN + ":" + properties);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid MBean name: " + properties, e);
+        }
+    }
+
+    private void register(ObjectName name, Object mBean) {
+        try {
+            mBeanServer.registerMBean(mBean, name);
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("MBean is already registered: " + name, e);
+        } catch (JMException e) {
+            throw new IllegalStateException("MBean could not be registered: " + name, e);
+        }
+    }
+
+    private void unregister(ObjectName name) {
+        try {
+            mBeanServer.unregisterMBean(name);
+        } catch (InstanceNotFoundException e) {
+            // Already gone
+        } catch (JMException e) {
+            throw new IllegalStateException("MBean could not be unregistered: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package loadbalancer.metrics;
+
+import java.util.Map;
+
+public interface LoadBalancerMetricsMXBean {
+
+    int getProviderCount();
+
+    Map<String, Long> getSelectionCounts();
+
+    long getSchedulerLockWaitTimeInNanos();
+
+    long getSchedulerLockAcquisitionCount();
+}
@@ -0,0 +1,35 @@
+package loadbalancer.metrics;
+
+import java.util.List;
+
+public class MetricsSnapshot {
+
+    private final long timestampInMs;
+    private final List<ProviderMetricsSnapshot> providers;
+    private final long schedulerLockWaitTimeInNanos;
+    private final long schedulerLockAcquisitionCount;
+
+    public MetricsSnapshot(long timestampInMs, List<ProviderMetricsSnapshot> providers,
+                           long schedulerLockWaitTimeInNanos, long schedulerLockAcquisitionCount) {
+        this.timestampInMs = timestampInMs;
+        this.providers = List.copyOf(providers);
+        this.schedulerLockWaitTimeInNanos = schedulerLockWaitTimeInNanos;
+        this.schedulerLockAcquisitionCount = schedulerLockAcquisitionCount;
+    }
+
+    public long getTimestampInMs() {
+        return timestampInMs;
+    }
+
+    public List<ProviderMetricsSnapshot> getProviders() {
+        return providers;
+    }
+
+    public long getSchedulerLockWaitTimeInNanos() {
+        return schedulerLockWaitTimeInNanos;
+    }
+
+    public long getSchedulerLockAcquisitionCount() {
+        return schedulerLockAcquisitionCount;
+    }
+}
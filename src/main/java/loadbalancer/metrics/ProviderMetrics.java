@@ -0,0 +1,101 @@
+package loadbalancer.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class ProviderMetrics implements ProviderMetricsMXBean {
+
+    private final String providerId;
+
+    private final LongAdder selections = new LongAdder();
+    private final LongAdder getFailures = new LongAdder();
+    private final LatencyHistogram getLatency = new LatencyHistogram();
+
+    private final LongAdder heartbeatSuccesses = new LongAdder();
+    private final LongAdder heartbeatFailures = new LongAdder();
+    private final LatencyHistogram checkLatency = new LatencyHistogram();
+
+    private final LongAdder availabilityTransitions = new LongAdder();
+
+    public ProviderMetrics(String providerId) {
+        this.providerId = providerId;
+    }
+
+    public void recordSelection() {
+        selections.increment();
+    }
+
+    public void recordGet(long latencyInNanos, boolean isSuccess) {
+        getLatency.record(latencyInNanos);
+        if (!isSuccess)
+            getFailures.increment();
+    }
+
+    public void recordHeartbeat(long checkLatencyInNanos, boolean isAlive) {
+        checkLatency.record(checkLatencyInNanos);
+        if (isAlive)
+            heartbeatSuccesses.increment();
+        else
+            heartbeatFailures.increment();
+    }
+
+    public void recordAvailabilityTransition() {
+        availabilityTransitions.increment();
+    }
+
+    public LatencyHistogram getGetLatencyHistogram() {
+        return getLatency;
+    }
+
+    @Override
+    public String getProviderId() {
+        return providerId;
+    }
+
+    @Override
+    public long getSelectionCount() {
+        return selections.sum();
+    }
+
+    @Override
+    public long getGetFailureCount() {
+        return getFailures.sum();
+    }
+
+    @Override
+    public HistogramSnapshot getGetLatency() {
+        return getLatency.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getCheckLatency() {
+        return checkLatency.snapshot();
+    }
+
+    @Override
+    public long getHeartbeatSuccessCount() {
+        return heartbeatSuccesses.sum();
+    }
+
+    @Override
+    public long getHeartbeatFailureCount() {
+        return heartbeatFailures.sum();
+    }
+
+    @Override
+    public double getHeartbeatSuccessRatio() {
+        long successes = heartbeatSuccesses.sum();
+        long total = successes + heartbeatFailures.sum();
+        return total == 0 ? 0 : (double) successes / total;
+    }
+
+    @Override
+    public long getAvailabilityTransitionCount() {
+        return availabilityTransitions.sum();
+    }
+
+    public ProviderMetricsSnapshot snapshot() {
+        return new ProviderMetricsSnapshot(providerId, getSelectionCount(), getGetFailureCount(), getGetLatency(),
+                getCheckLatency(), getHeartbeatSuccessCount(), getHeartbeatFailureCount(),
+                getAvailabilityTransitionCount());
+    }
+}
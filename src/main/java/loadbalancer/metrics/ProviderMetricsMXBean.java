@@ -0,0 +1,22 @@
+package loadbalancer.metrics;
+
+public interface ProviderMetricsMXBean {
+
+    String getProviderId();
+
+    long getSelectionCount();
+
+    long getGetFailureCount();
+
+    HistogramSnapshot getGetLatency();
+
+    HistogramSnapshot getCheckLatency();
+
+    long getHeartbeatSuccessCount();
+
+    long getHeartbeatFailureCount();
+
+    double getHeartbeatSuccessRatio();
+
+    long getAvailabilityTransitionCount();
+}
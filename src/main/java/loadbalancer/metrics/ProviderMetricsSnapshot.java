@@ -0,0 +1,59 @@
+package loadbalancer.metrics;
+
+public class ProviderMetricsSnapshot {
+
+    private final String providerId;
+    private final long selectionCount;
+    private final long getFailureCount;
+    private final HistogramSnapshot getLatency;
+    private final HistogramSnapshot checkLatency;
+    private final long heartbeatSuccessCount;
+    private final long heartbeatFailureCount;
+    private final long availabilityTransitionCount;
+
+    public ProviderMetricsSnapshot(String providerId, long selectionCount, long getFailureCount,
+                                   HistogramSnapshot getLatency, HistogramSnapshot checkLatency,
+                                   long heartbeatSuccessCount, long heartbeatFailureCount,
+                                   long availabilityTransitionCount) {
+        this.providerId = providerId;
+        this.selectionCount = selectionCount;
+        this.getFailureCount = getFailureCount;
+        this.getLatency = getLatency;
+        this.checkLatency = checkLatency;
+        this.heartbeatSuccessCount = heartbeatSuccessCount;
+        this.heartbeatFailureCount = heartbeatFailureCount;
+        this.availabilityTransitionCount = availabilityTransitionCount;
+    }
+
+    public String getProviderId() {
+        return providerId;
+    }
+
+    public long getSelectionCount() {
+        return selectionCount;
+    }
+
+    public long getGetFailureCount() {
+        return getFailureCount;
+    }
+
+    public HistogramSnapshot getGetLatency() {
+        return getLatency;
+    }
+
+    public HistogramSnapshot getCheckLatency() {
+        return checkLatency;
+    }
+
+    public long getHeartbeatSuccessCount() {
+        return heartbeatSuccessCount;
+    }
+
+    public long getHeartbeatFailureCount() {
+        return heartbeatFailureCount;
+    }
+
+    public long getAvailabilityTransitionCount() {
+        return availabilityTransitionCount;
+    }
+}
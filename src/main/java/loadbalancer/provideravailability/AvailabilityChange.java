@@ -0,0 +1,30 @@
+package loadbalancer.provideravailability;
+
+public class AvailabilityChange {
+
+    private final Traceable traceable;
+    private final boolean isAvailable;
+
+    // Monotonic publish time, so observers can tell a change made before a traceable registered again
+    private final long createdAt = System.nanoTime();
+
+    public AvailabilityChange(Traceable traceable, boolean isAvailable) {
+        if (traceable == null)
+            throw new IllegalArgumentException("Traceable can not be null");
+
+        this.traceable = traceable;
+        this.isAvailable = isAvailable;
+    }
+
+    public Traceable getTraceable() {
+        return traceable;
+    }
+
+    public boolean isAvailable() {
+        return isAvailable;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
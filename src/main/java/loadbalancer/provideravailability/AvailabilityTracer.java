@@ -8,7 +8,18 @@ public interface AvailabilityTracer {
 
     void updateExclusion(Traceable traceable, boolean isExcluded);
 
+    // An open circuit keeps the traceable unavailable regardless of its heartbeat and exclusion
+    void updateCircuitOpen(Traceable traceable, boolean isOpen);
+
     boolean isAlive(HeartbeatTraceable traceable);
 
     boolean isExcluded(Traceable traceable);
+
+    boolean isCircuitOpen(Traceable traceable);
+
+    // Null when the traceable is not tracked
+    TraceableState getTraceableState(Traceable traceable);
+
+    // Overwrites alive, exclusion and re-inclusion state of a tracked traceable; later heartbeats still apply as usual
+    void restoreTraceableState(TraceableState state);
 }
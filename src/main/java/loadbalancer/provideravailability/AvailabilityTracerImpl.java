@@ -1,22 +1,44 @@
 package loadbalancer.provideravailability;
 
+import loadbalancer.concurrency.HashedTimingWheel;
+import loadbalancer.eventlog.EventLevel;
+import loadbalancer.eventlog.EventLogs;
+import loadbalancer.metrics.LoadBalancerMetrics;
+import loadbalancer.metrics.ProviderMetrics;
+import loadbalancer.provideravailability.heartbeat.HeartbeatPolicy;
+import loadbalancer.provideravailability.heartbeat.HeartbeatProber;
 import loadbalancer.provideravailability.heartbeat.HeartbeatTraceable;
 import loadbalancer.provideravailability.heartbeat.HeartbeatTracer;
 import loadbalancer.provideravailability.heartbeat.HeartbeatTracerImpl;
 import loadbalancer.providerregistry.ProviderRegistryObserver;
 import provider.Provider;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AvailabilityTracerImpl implements AvailabilityTracer, ProviderRegistryObserver {
 
+    // Layout of the packed TraceInfo state word
+    private static final int ALIVE_BIT = 1;
+    private static final int EXCLUDED_BIT = 1 << 1;
+    private static final int RE_INCLUSION_PENDING_BIT = 1 << 2;
+    private static final int CIRCUIT_OPEN_BIT = 1 << 3;
+    private static final int RE_INCLUSION_COUNT_SHIFT = 8;
+
+    private static final String LOG_SOURCE = "availability";
+
     protected class TraceInfo {
 
         private final Traceable traceable;
-        private boolean isAlive;
-        private boolean isExcluded;
+
+        // Alive, excluded, circuit open and re-inclusion countdown are updated together with a single CAS
+        private final AtomicInteger state;
+
+        // Serializes notifications for this traceable without a lock; see notifyAvailability
+        private final AtomicInteger notificationsInProgress = new AtomicInteger();
+        private boolean lastNotifiedAvailability;
 
         public TraceInfo(Traceable traceable) {
             this(traceable, false, false);
@@ -27,8 +49,8 @@ public class AvailabilityTracerImpl implements AvailabilityTracer, ProviderRegis
                 throw new IllegalArgumentException("Traceable can not be null");
 
             this.traceable = traceable;
-            this.isAlive = isAlive;
-            this.isExcluded = isExcluded;
+            this.state = new AtomicInteger((isAlive ? ALIVE_BIT : 0) | (isExcluded ? EXCLUDED_BIT : 0));
+            this.lastNotifiedAvailability = false;
         }
 
         public String getId() {
@@ -40,71 +62,85 @@ public class AvailabilityTracerImpl implements AvailabilityTracer, ProviderRegis
         }
 
         public boolean isAlive() {
-            return isAlive;
-        }
-
-        public void setAlive(boolean alive) {
-            isAlive = alive;
+            return AvailabilityTracerImpl.isAlive(state.get());
         }
 
         public boolean isExcluded() {
-            return isExcluded;
+            return AvailabilityTracerImpl.isExcluded(state.get());
         }
 
-        public void setExcluded(boolean excluded) {
-            isExcluded = excluded;
+        public boolean isCircuitOpen() {
+            return AvailabilityTracerImpl.isCircuitOpen(state.get());
         }
 
-        public boolean isAvailable() { return isAlive() && !isExcluded(); }
+        public boolean isAvailable() {
+            return AvailabilityTracerImpl.isAvailable(state.get());
+        }
     }
 
-    protected class ReInclusionPolicyInfo {
-        private String traceableId;
+    private final String providerRegistryObserverId = UUID.randomUUID().toString();
 
-        private volatile int requiredHeartbeatCount;
+    private final Map<String, TraceInfo> tracked;
+    private final Map<String, HeartbeatTracer> heartbeatTracers;
 
-        public ReInclusionPolicyInfo(String traceableId, int requiredHeartbeatCount) {
-            this.traceableId = traceableId;
-            this.requiredHeartbeatCount = requiredHeartbeatCount;
-        }
+    private final AvailabilityTracerObserverSubject availabilityTracerObserverSubject;
 
-        public String getTraceableId() {
-            return traceableId;
-        }
+    private final boolean isApplyReInclusionPolicy;
 
-        public int getRequiredHeartbeatCount() {
-            return requiredHeartbeatCount;
-        }
+    private final HashedTimingWheel heartbeatTimingWheel;
 
-        public void decreaseCounter() {
-            requiredHeartbeatCount--;
-        }
-    }
+    // A wheel created here is stopped here; a shared one belongs to whoever passed it in
+    private final boolean isTimingWheelOwned;
 
-    private final String providerRegistryObserverId = UUID.randomUUID().toString();
+    private final HeartbeatProber heartbeatProber;
 
-    private final Map<String, TraceInfo> tracked;
-    private final Map<String, HeartbeatTracer> heartbeatTracers;
+    private final LoadBalancerMetrics metrics;
 
-    private final Map<String, ReInclusionPolicyInfo> reInclusionPolicyElements;
+    private final HeartbeatPolicy heartbeatPolicy;
 
-    private final Object lock = new Object();
+    private static final int HEARTBEAT_TICK_DURATION_IN_MS = 10;
 
-    private final AvailabilityTracerObserverSubject availabilityTracerObserverSubject;
+    private static final int HEARTBEAT_TICKS_PER_WHEEL = 512;
 
-    private final boolean isApplyReInclusionPolicy;
+    private static final int HEARTBEAT_WORKER_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
 
-    private static final int HEARTBEAT_TRACE_FREQUENCY_IN_MS = 2 * 1000;
+    public AvailabilityTracerImpl(AvailabilityTracerObserverSubject availabilityTracerObserverSubject,
+                                  boolean isApplyReInclusionPolicy) {
+        this(availabilityTracerObserverSubject, isApplyReInclusionPolicy, HeartbeatPolicy.DEFAULT,
+                new LoadBalancerMetrics());
+    }
 
+    public AvailabilityTracerImpl(AvailabilityTracerObserverSubject availabilityTracerObserverSubject,
+                                  boolean isApplyReInclusionPolicy,
+                                  HeartbeatPolicy heartbeatPolicy,
+                                  LoadBalancerMetrics metrics) {
+        this(availabilityTracerObserverSubject, isApplyReInclusionPolicy, heartbeatPolicy, metrics, null);
+    }
 
+    // Heartbeats run on the given timing wheel; null creates one for this tracer
     public AvailabilityTracerImpl(AvailabilityTracerObserverSubject availabilityTracerObserverSubject,
-                                  boolean isApplyReInclusionPolicy) {
-        tracked = new HashMap<>();
-        heartbeatTracers = new HashMap<>();
-        reInclusionPolicyElements = new HashMap<>();
+                                  boolean isApplyReInclusionPolicy,
+                                  HeartbeatPolicy heartbeatPolicy,
+                                  LoadBalancerMetrics metrics,
+                                  HashedTimingWheel timingWheel) {
+        if (heartbeatPolicy == null)
+            throw new IllegalArgumentException("HeartbeatPolicy can not be null");
+
+        if (metrics == null)
+            throw new IllegalArgumentException("LoadBalancerMetrics can not be null");
+
+        tracked = new ConcurrentHashMap<>();
+        heartbeatTracers = new ConcurrentHashMap<>();
+        isTimingWheelOwned = timingWheel == null;
+        heartbeatTimingWheel = isTimingWheelOwned ? new HashedTimingWheel("heartbeat", HEARTBEAT_TICK_DURATION_IN_MS,
+                HEARTBEAT_TICKS_PER_WHEEL, HEARTBEAT_WORKER_COUNT) : timingWheel;
+        heartbeatProber = new HeartbeatProber(heartbeatTimingWheel, heartbeatPolicy.getProbeDeadlineInMs(),
+                heartbeatPolicy.getMaxConcurrentProbes());
 
         this.availabilityTracerObserverSubject = availabilityTracerObserverSubject;
         this.isApplyReInclusionPolicy = isApplyReInclusionPolicy;
+        this.metrics = metrics;
+        this.heartbeatPolicy = heartbeatPolicy;
     }
 
     @Override
@@ -112,6 +148,14 @@ public class AvailabilityTracerImpl implements AvailabilityTracer, ProviderRegis
         return providerRegistryObserverId;
     }
 
+    // Stops every heartbeat and interrupts probes still running
+    public void stop() {
+        heartbeatTracers.values().forEach(this::stopHeartbeatTracer);
+        heartbeatProber.stop();
+        if (isTimingWheelOwned)
+            heartbeatTimingWheel.stop();
+    }
+
     @Override
     public void providerRegistered(Provider provider) {
         handleProviderRegister(provider);
@@ -132,6 +176,11 @@ public class AvailabilityTracerImpl implements AvailabilityTracer, ProviderRegis
         updateExclusionTraceable(traceable.getTraceableId(), isExcluded);
     }
 
+    @Override
+    public void updateCircuitOpen(Traceable traceable, boolean isOpen) {
+        updateCircuitOpenTraceable(traceable.getTraceableId(), isOpen);
+    }
+
     @Override
     public boolean isAlive(HeartbeatTraceable traceable) {
         return isHeartbeatTraceableAlive(traceable.getTraceableId());
@@ -142,272 +191,269 @@ public class AvailabilityTracerImpl implements AvailabilityTracer, ProviderRegis
         return isTraceableExcluded(traceable.getTraceableId());
     }
 
-    private void handleProviderRegister(Provider provider) {
-        synchronized (lock) {
-            if (hasTraceInfo(provider)) {
-                throw new IllegalStateException("Provider is already registered in AvailabilityTracer");
-            }
-
-            TraceInfo traceInfo = createTraceInfo(provider);
-            addUpdateTraceInfo(traceInfo);
-
-            HeartbeatTracer heartbeatTracer = createHeartbeatTracer(provider);
-            saveHeartbeatTracer(heartbeatTracer);
-            startHeartbeatTracer(heartbeatTracer);
-        }
+    @Override
+    public boolean isCircuitOpen(Traceable traceable) {
+        return isTraceableCircuitOpen(traceable.getTraceableId());
     }
-    
-    private void handleProviderUnregister(Provider provider) {
-        synchronized (lock) {
-            String traceableId = provider.getTraceableId();
-            if (!hasTraceInfo(provider)) {
-                throw new IllegalArgumentException("Provider is already unregistered in AvailabilityTracer");
-            }
 
-            TraceInfo traceInfo = getTraceInfo(traceableId);
-            deleteTraceInfo(traceInfo);
+    @Override
+    public TraceableState getTraceableState(Traceable traceable) {
+        TraceInfo traceInfo = getTraceInfo(traceable.getTraceableId());
+        if (traceInfo == null)
+            return null;
 
-            HeartbeatTracer heartbeatTracer = getHeartbeatTracer(traceableId);
-            stopHeartbeatTracer(heartbeatTracer);
-            deleteHeartbeatTracer(heartbeatTracer.getHeartbeatTraceable().getTraceableId());
-        }
+        // One read of the state word, so the flags and the count are consistent with each other
+        int state = traceInfo.state.get();
+        return new TraceableState(traceInfo.getId(), isAlive(state), isExcluded(state),
+                isReInclusionPending(state) ? getReInclusionCount(state) : 0);
     }
 
-    private void updateAlivenessTraceable(String id, boolean isAlive) {
-        synchronized (lock) {
-            TraceInfo traceInfo = getTraceInfo(id);
-            if (traceInfo == null)
-                throw new IllegalStateException("Trace info could not be found to update aliveness for: " + id);
-
-            boolean shouldApplyReInclusionPolicy = shouldApplyReInclusionPolicy(traceInfo.isExcluded());
-            if (shouldApplyReInclusionPolicy) {
-                ReInclusionPolicyInfo reInclusionPolicyInfo = decreaseCounterReInclusionPolicyInfo(id);
-                System.out.println(
-                        String.format("Reinclusion policy triggered: %s. Required heartbeat count: %d",
-                                id, reInclusionPolicyInfo.getRequiredHeartbeatCount()));
-                if (shouldReInclusionApplied(reInclusionPolicyInfo)) {
-                    System.out.println(
-                            String.format("Re-included Traceable %s", id));
-                    updateExclusion(traceInfo.getTraceable(), false);
-                    deleteReInclusionPolicyInfo(id);
-                }
-            }
-
-            boolean willBeNotified = shouldAvailabilityNotifyTriggeredOnAlivenessChange(traceInfo, isAlive);
-
-            traceInfo.setAlive(isAlive);
-            addUpdateTraceInfo(traceInfo);
+    @Override
+    public void restoreTraceableState(TraceableState traceableState) {
+        String id = traceableState.getId();
+        TraceInfo traceInfo = getTraceInfo(id);
+        if (traceInfo == null)
+            throw new IllegalStateException("Trace info could not be found to restore state for: " + id);
 
-            if (willBeNotified) {
-                availabilityTracerObserverSubject.notifyAvailabilityChanged(traceInfo.getTraceable(), getAvailability(traceInfo));
-            }
+        int restored = (traceableState.isAlive() ? ALIVE_BIT : 0) | (traceableState.isExcluded() ? EXCLUDED_BIT : 0);
+        if (shouldApplyReInclusionPolicy(traceableState.isExcluded()) && traceableState.getReInclusionCount() > 0) {
+            int requiredHeartbeatCount = Math.min(traceableState.getReInclusionCount(),
+                    HeartbeatPolicy.MAX_RE_INCLUSION_HEARTBEAT_COUNT);
+            restored = withReInclusionCount(restored | RE_INCLUSION_PENDING_BIT, requiredHeartbeatCount);
         }
-    }
 
-    private void updateExclusionTraceable(String id, boolean isExcluded) {
-        synchronized (lock) {
-            TraceInfo traceInfo = getTraceInfo(id);
-            if (traceInfo == null) {
-                throw new IllegalStateException("Trace info could not be found to update exclusion for: " + id);
-            }
+        // An open circuit belongs to this process's own traffic, so it is kept
+        int previous;
+        int next;
+        do {
+            previous = traceInfo.state.get();
+            next = restored | (previous & CIRCUIT_OPEN_BIT);
+        } while (!traceInfo.state.compareAndSet(previous, next));
 
-            boolean shouldApplyReInclusionPolicy = shouldApplyReInclusionPolicy(isExcluded);
-            if (shouldApplyReInclusionPolicy) {
-                ReInclusionPolicyInfo reInclusionPolicyInfo = getCreateReInclusionPolicyInfo(id);
-                System.out.println(
-                        String.format("Reinclusion policy enabled: %s. Required heartbeat count: %d",
-                                reInclusionPolicyInfo.getTraceableId(),
-                                reInclusionPolicyInfo.getRequiredHeartbeatCount()));
-            }
+        EventLogs.get().log(EventLevel.INFO, LOG_SOURCE, "Restored Traceable %s. Alive: %s, excluded: %s", id,
+                isAlive(next), isExcluded(next));
 
-            boolean willBeNotified = shouldAvailabilityNotifyTriggeredOnExclusionChange(traceInfo, isExcluded);
-            traceInfo.setExcluded(isExcluded);
-            addUpdateTraceInfo(traceInfo);
+        notifyAvailability(traceInfo, previous, next);
+    }
 
-            if (willBeNotified) {
-                availabilityTracerObserverSubject.notifyAvailabilityChanged(traceInfo.getTraceable(), getAvailability(traceInfo));
-            }
+    private void handleProviderRegister(Provider provider) {
+        TraceInfo traceInfo = createTraceInfo(provider);
+        if (tracked.putIfAbsent(traceInfo.getId(), traceInfo) != null) {
+            throw new IllegalStateException("Provider is already registered in AvailabilityTracer");
         }
+
+        HeartbeatTracer heartbeatTracer = createHeartbeatTracer(provider);
+        saveHeartbeatTracer(heartbeatTracer);
+        startHeartbeatTracer(heartbeatTracer);
     }
 
-    private boolean shouldAvailabilityNotifyTriggeredOnExclusionChange(TraceInfo traceInfo, boolean newExclusionState) {
-        synchronized (lock) {
-            if (traceInfo.isExcluded() == newExclusionState)
-                return false;
+    private void handleProviderUnregister(Provider provider) {
+        String traceableId = provider.getTraceableId();
+        if (tracked.remove(traceableId) == null) {
+            throw new IllegalArgumentException("Provider is already unregistered in AvailabilityTracer");
+        }
 
-            return traceInfo.isAlive();
+        HeartbeatTracer heartbeatTracer = heartbeatTracers.remove(traceableId);
+        if (heartbeatTracer != null) {
+            stopHeartbeatTracer(heartbeatTracer);
         }
     }
 
-    private boolean shouldAvailabilityNotifyTriggeredOnAlivenessChange(TraceInfo traceInfo, boolean newAlivenessState) {
-        synchronized (lock) {
-            if (traceInfo.isAlive() == newAlivenessState) {
-                return false;
+    private void updateAlivenessTraceable(String id, boolean isAlive) {
+        TraceInfo traceInfo = getTraceInfo(id);
+        if (traceInfo == null)
+            throw new IllegalStateException("Trace info could not be found to update aliveness for: " + id);
+
+        int previous;
+        int next;
+        do {
+            previous = traceInfo.state.get();
+            next = isAlive ? previous | ALIVE_BIT : previous & ~ALIVE_BIT;
+
+            if (shouldApplyReInclusionPolicy(isExcluded(previous)) && isReInclusionPending(previous)) {
+                int requiredHeartbeatCount = getReInclusionCount(previous) - 1;
+                next = requiredHeartbeatCount <= 0
+                        ? withoutExclusion(next)
+                        : withReInclusionCount(next, requiredHeartbeatCount);
+            }
+        } while (!traceInfo.state.compareAndSet(previous, next));
+
+        if (isReInclusionPending(previous)) {
+            if (isExcluded(next)) {
+                EventLogs.get().log(EventLevel.INFO, LOG_SOURCE,
+                        "Reinclusion policy triggered: %s. Required heartbeat count: %d", id, getReInclusionCount(next));
+            } else {
+                EventLogs.get().log(EventLevel.INFO, LOG_SOURCE, "Re-included Traceable %s", id);
             }
-
-            return !traceInfo.isExcluded();
         }
-    }
 
-    private boolean shouldApplyReInclusionPolicy(boolean isExcluded) {
-        return isApplyReInclusionPolicy && isExcluded;
+        notifyAvailability(traceInfo, previous, next);
     }
 
-    private ReInclusionPolicyInfo getCreateReInclusionPolicyInfo(String traceableId) {
-        synchronized (lock) {
-            ReInclusionPolicyInfo reInclusionPolicyInfo = null;
-            if (reInclusionPolicyElements.containsKey(traceableId)) {
-                reInclusionPolicyInfo = reInclusionPolicyElements.get(traceableId);
-            }
-            else {
-                reInclusionPolicyInfo = new ReInclusionPolicyInfo(traceableId, 2);
+    private void updateExclusionTraceable(String id, boolean isExcluded) {
+        TraceInfo traceInfo = getTraceInfo(id);
+        if (traceInfo == null) {
+            throw new IllegalStateException("Trace info could not be found to update exclusion for: " + id);
+        }
+
+        boolean shouldApplyReInclusionPolicy = shouldApplyReInclusionPolicy(isExcluded);
+        int previous;
+        int next;
+        do {
+            previous = traceInfo.state.get();
+            if (!isExcluded) {
+                next = withoutExclusion(previous);
+            } else if (shouldApplyReInclusionPolicy && !isReInclusionPending(previous)) {
+                next = withReInclusionCount(previous | EXCLUDED_BIT | RE_INCLUSION_PENDING_BIT,
+                        heartbeatPolicy.getReInclusionHeartbeatCount());
+            } else {
+                next = previous | EXCLUDED_BIT;
             }
+        } while (!traceInfo.state.compareAndSet(previous, next));
 
-            return reInclusionPolicyInfo;
+        if (shouldApplyReInclusionPolicy) {
+            EventLogs.get().log(EventLevel.INFO, LOG_SOURCE,
+                    "Reinclusion policy enabled: %s. Required heartbeat count: %d", id, getReInclusionCount(next));
         }
-    }
 
-    private ReInclusionPolicyInfo decreaseCounterReInclusionPolicyInfo(String traceableId) {
-        synchronized (lock) {
-            ReInclusionPolicyInfo reInclusionPolicyInfo = getCreateReInclusionPolicyInfo(traceableId);
-            reInclusionPolicyInfo.decreaseCounter();
-            updateReInclusionPolicyInfo(reInclusionPolicyInfo);
-            return reInclusionPolicyInfo;
-        }
+        notifyAvailability(traceInfo, previous, next);
     }
 
-    private void updateReInclusionPolicyInfo(ReInclusionPolicyInfo reInclusionPolicyInfo) {
-        synchronized (lock) {
-            reInclusionPolicyElements.put(reInclusionPolicyInfo.getTraceableId(), reInclusionPolicyInfo);
+    private void updateCircuitOpenTraceable(String id, boolean isOpen) {
+        TraceInfo traceInfo = getTraceInfo(id);
+        if (traceInfo == null) {
+            throw new IllegalStateException("Trace info could not be found to update circuit for: " + id);
         }
-    }
 
-    private boolean shouldReInclusionApplied(ReInclusionPolicyInfo reInclusionPolicyInfo) {
-        return reInclusionPolicyInfo.getRequiredHeartbeatCount() <= 0;
-    }
+        int previous;
+        int next;
+        do {
+            previous = traceInfo.state.get();
+            next = isOpen ? previous | CIRCUIT_OPEN_BIT : previous & ~CIRCUIT_OPEN_BIT;
+        } while (!traceInfo.state.compareAndSet(previous, next));
 
-    private void deleteReInclusionPolicyInfo(String traceableId) {
-        synchronized (lock) {
-            reInclusionPolicyElements.remove(traceableId);
-        }
+        notifyAvailability(traceInfo, previous, next);
     }
 
-    private boolean getAvailability(TraceInfo traceInfo) {
-        return traceInfo.isAvailable();
-    }
+    /**
+     * Notifies outside of any lock. Concurrent updates of the same traceable are drained by whichever thread
+     * got in first, always publishing the latest state, so observers can not end up on a stale availability.
+     */
+    private void notifyAvailability(TraceInfo traceInfo, int previous, int next) {
+        if (isAvailable(previous) == isAvailable(next) && traceInfo.notificationsInProgress.get() == 0)
+            return;
 
-    private boolean isHeartbeatTraceableAlive(String id) {
-        synchronized (lock) {
-            TraceInfo traceInfo = getTraceInfo(id);
-            if (traceInfo == null) {
-                throw new IllegalStateException("Trace info could not be found to query aliveness for: " + id);
+        if (traceInfo.notificationsInProgress.getAndIncrement() != 0)
+            return;
+
+        int missed = 1;
+        do {
+            boolean isAvailable = traceInfo.isAvailable();
+            if (isAvailable != traceInfo.lastNotifiedAvailability) {
+                traceInfo.lastNotifiedAvailability = isAvailable;
+                recordAvailabilityTransition(traceInfo);
+                availabilityTracerObserverSubject.notifyAvailabilityChanged(traceInfo.getTraceable(), isAvailable);
             }
 
-            return traceInfo.isAlive();
-        }
+            missed = traceInfo.notificationsInProgress.addAndGet(-missed);
+        } while (missed != 0);
     }
 
-    private boolean isTraceableExcluded(String id) {
-        synchronized (lock) {
-            TraceInfo traceInfo = getTraceInfo(id);
-            if (traceInfo == null) {
-                throw new IllegalStateException("Trace info could not be found to query exclusion for: " + id);
-            }
+    private void recordAvailabilityTransition(TraceInfo traceInfo) {
+        ProviderMetrics providerMetrics = metrics.getProviderMetrics(traceInfo.getId());
+        if (providerMetrics != null)
+            providerMetrics.recordAvailabilityTransition();
+    }
 
-            return traceInfo.isExcluded();
-        }
+    private boolean shouldApplyReInclusionPolicy(boolean isExcluded) {
+        return isApplyReInclusionPolicy && isExcluded;
     }
 
-    private boolean isTraceableAvailable(String id) {
-        synchronized (lock) {
-            TraceInfo traceInfo = getTraceInfo(id);
-            if (traceInfo == null) {
-                throw new IllegalStateException("Trace info could not be found to query availability:" + id);
-            }
+    private static boolean isAlive(int state) {
+        return (state & ALIVE_BIT) != 0;
+    }
 
-            return traceInfo.isAlive() && !traceInfo.isExcluded();
-        }
+    private static boolean isExcluded(int state) {
+        return (state & EXCLUDED_BIT) != 0;
     }
 
-    private TraceInfo getTraceInfo(String id) {
-        synchronized (lock) {
-            if (!hasTraceInfo(id))
-                return null;
+    private static boolean isCircuitOpen(int state) {
+        return (state & CIRCUIT_OPEN_BIT) != 0;
+    }
 
-            return tracked.get(id);
-        }
+    private static boolean isAvailable(int state) {
+        return isAlive(state) && !isExcluded(state) && !isCircuitOpen(state);
     }
 
-    private TraceInfo createTraceInfo(Traceable traceable) {
-        return new TraceInfo(traceable);
+    private static boolean isReInclusionPending(int state) {
+        return (state & RE_INCLUSION_PENDING_BIT) != 0;
     }
 
-    private boolean hasTraceInfo(Traceable traceable) {
-        synchronized (lock) {
-            String traceableId = traceable.getTraceableId();
-            return hasTraceInfo(traceableId);
-        }
+    private static int getReInclusionCount(int state) {
+        return state >>> RE_INCLUSION_COUNT_SHIFT;
     }
 
-    private boolean hasTraceInfo(String id) {
-        synchronized (lock) {
-            return tracked.containsKey(id);
-        }
+    private static int withoutExclusion(int state) {
+        return state & ~(EXCLUDED_BIT | RE_INCLUSION_PENDING_BIT) & ((1 << RE_INCLUSION_COUNT_SHIFT) - 1);
     }
 
-    private void addUpdateTraceInfo(TraceInfo traceInfo) {
-        synchronized (lock) {
-            tracked.put(traceInfo.getId(), traceInfo);
-        }
+    private static int withReInclusionCount(int state, int requiredHeartbeatCount) {
+        return (state & ((1 << RE_INCLUSION_COUNT_SHIFT) - 1)) | (requiredHeartbeatCount << RE_INCLUSION_COUNT_SHIFT);
     }
 
-    private void deleteTraceInfo(TraceInfo traceInfo) {
-        synchronized (lock) {
-            tracked.remove(traceInfo.getId());
+    private boolean isHeartbeatTraceableAlive(String id) {
+        TraceInfo traceInfo = getTraceInfo(id);
+        if (traceInfo == null) {
+            throw new IllegalStateException("Trace info could not be found to query aliveness for: " + id);
         }
+
+        return traceInfo.isAlive();
     }
 
-    private boolean hasHeartbeatTracer(String heartbeatTraceableId) {
-        synchronized (lock) {
-            return heartbeatTracers.containsKey(heartbeatTraceableId);
+    private boolean isTraceableExcluded(String id) {
+        TraceInfo traceInfo = getTraceInfo(id);
+        if (traceInfo == null) {
+            throw new IllegalStateException("Trace info could not be found to query exclusion for: " + id);
         }
+
+        return traceInfo.isExcluded();
     }
 
-    private HeartbeatTracer getHeartbeatTracer(String heartbeatTraceableId) {
-        synchronized (lock) {
-            return heartbeatTracers.get(heartbeatTraceableId);
+    private boolean isTraceableCircuitOpen(String id) {
+        TraceInfo traceInfo = getTraceInfo(id);
+        if (traceInfo == null) {
+            throw new IllegalStateException("Trace info could not be found to query circuit for: " + id);
         }
+
+        return traceInfo.isCircuitOpen();
     }
 
-    private void deleteHeartbeatTracer(String heartbeatTraceableId) {
-        synchronized (lock) {
-            heartbeatTracers.remove(heartbeatTraceableId);
-        }
+    private TraceInfo getTraceInfo(String id) {
+        return tracked.get(id);
+    }
+
+    private TraceInfo createTraceInfo(Traceable traceable) {
+        return new TraceInfo(traceable);
     }
 
     private HeartbeatTracer createHeartbeatTracer(HeartbeatTraceable heartbeatTraceable) {
-        return new HeartbeatTracerImpl(heartbeatTraceable, this, HEARTBEAT_TRACE_FREQUENCY_IN_MS);
+        return new HeartbeatTracerImpl(heartbeatTraceable, this, heartbeatPolicy.getTraceFrequencyInMs(),
+                heartbeatTimingWheel, heartbeatProber, metrics, heartbeatPolicy.getPhiAccrualPolicy());
     }
 
     private void saveHeartbeatTracer(HeartbeatTracer tracer) {
-        synchronized (lock) {
-            if (tracer == null) {
-                throw new IllegalArgumentException("HeartbeatTracer can not be null while saving tracer");
-            }
-
-            heartbeatTracers.put(tracer.getHeartbeatTraceable().getTraceableId(), tracer);
+        if (tracer == null) {
+            throw new IllegalArgumentException("HeartbeatTracer can not be null while saving tracer");
         }
+
+        heartbeatTracers.put(tracer.getHeartbeatTraceable().getTraceableId(), tracer);
     }
 
     private void startHeartbeatTracer(HeartbeatTracer tracer) {
-        synchronized (lock) {
-            tracer.start();
-        }
+        tracer.start();
     }
 
     private void stopHeartbeatTracer(HeartbeatTracer tracer) {
-        synchronized (lock) {
-            tracer.stop();
-        }
+        tracer.stop();
     }
 }
@@ -1,8 +1,15 @@
 package loadbalancer.provideravailability;
 
+import java.util.List;
+
 public interface AvailabilityTracerObserver {
 
     String getObserverId();
 
     void traceableAvailabilityChanged(Traceable traceable, boolean isAvailable);
+
+    // Coalesced changes delivered together; observers that rebuild derived state override this to do it once
+    default void traceablesAvailabilityChanged(List<AvailabilityChange> changes) {
+        changes.forEach(change -> traceableAvailabilityChanged(change.getTraceable(), change.isAvailable()));
+    }
 }
@@ -1,24 +1,68 @@
 package loadbalancer.provideravailability;
 
-import loadbalancer.providerregistry.ProviderRegistryObserver;
+import loadbalancer.concurrency.MpscRingBuffer;
+import loadbalancer.eventlog.EventLevel;
+import loadbalancer.eventlog.EventLogs;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Delivers availability changes on a single dispatcher thread. Publishers only record the latest state of a
+ * traceable and, if none was pending, push its id into a bounded ring buffer, so heartbeat threads never run
+ * observer code. Changes to the same traceable that pile up before dispatch are merged into the latest one,
+ * and everything drained together is handed to observers as one batch.
+ *
+ * <p>Registrations are not routed through here, so a change can be delivered after its traceable was unregistered
+ * and registered again under the same id. Observers compare AvailabilityChange.getCreatedAt() with their own
+ * registration time to drop such a change.
+ */
 public class AvailabilityTracerObserverSubjectImpl implements AvailabilityTracerObserverSubject {
 
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private static final String LOG_SOURCE = "availability";
+
+    private final AvailabilityTracerObserver[] noObservers = new AvailabilityTracerObserver[0];
+
     private Map<String, AvailabilityTracerObserver> observers;
     private Object lock = new Object();
 
+    // Copy-on-write view of observers for the dispatcher
+    private volatile AvailabilityTracerObserver[] currentObservers = noObservers;
+
+    private final Map<String, AvailabilityChange> pendingChanges = new ConcurrentHashMap<>();
+    private final MpscRingBuffer<String> pendingIds;
+
+    private final Thread dispatcher;
+    private volatile boolean isDispatcherWaiting;
+    private volatile boolean isStopped;
+
     public AvailabilityTracerObserverSubjectImpl() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // Capacity should cover the number of traceables; each one occupies at most one slot at a time
+    public AvailabilityTracerObserverSubjectImpl(int capacity) {
         observers = new HashMap<>();
+        pendingIds = new MpscRingBuffer<>(capacity);
+
+        dispatcher = new Thread(this::dispatch, "availability-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
     }
 
     @Override
     public void attach(AvailabilityTracerObserver observer) {
         synchronized (lock) {
             observers.put(observer.getObserverId(), observer);
+            currentObservers = observers.values().toArray(noObservers);
         }
     }
 
@@ -26,16 +70,72 @@ public class AvailabilityTracerObserverSubjectImpl implements AvailabilityTracer
     public void detach(AvailabilityTracerObserver observer) {
         synchronized (lock) {
             observers.remove(observer.getObserverId());
+            currentObservers = observers.values().toArray(noObservers);
         }
     }
 
     @Override
     public void notifyAvailabilityChanged(Traceable traceable, boolean isAvailable) {
-        List<AvailabilityTracerObserver> currentObservers;
-        synchronized (lock) {
-            currentObservers = observers.values().stream().toList();
+        String id = traceable.getTraceableId();
+        if (pendingChanges.put(id, new AvailabilityChange(traceable, isAvailable)) != null)
+            return;
+
+        // Only possible with more pending traceables than slots; the dispatcher is draining, so this is short
+        while (!pendingIds.offer(id)) {
+            if (isStopped)
+                return;
+            wakeUpDispatcher();
+            Thread.yield();
         }
 
-        currentObservers.forEach(observer -> observer.traceableAvailabilityChanged(traceable, isAvailable));
+        wakeUpDispatcher();
+    }
+
+    // Changes still pending are dropped
+    public void stop() {
+        isStopped = true;
+        LockSupport.unpark(dispatcher);
+    }
+
+    private void wakeUpDispatcher() {
+        if (isDispatcherWaiting)
+            LockSupport.unpark(dispatcher);
+    }
+
+    private void dispatch() {
+        // Keyed by id so a traceable re-published while the batch is drained keeps only its latest state
+        Map<String, AvailabilityChange> batch = new LinkedHashMap<>();
+        while (!isStopped) {
+            String id;
+            while (batch.size() < MAX_BATCH_SIZE && (id = pendingIds.poll()) != null) {
+                AvailabilityChange change = pendingChanges.remove(id);
+                if (change != null) {
+                    batch.put(id, change);
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                deliver(List.copyOf(batch.values()));
+                batch.clear();
+                continue;
+            }
+
+            isDispatcherWaiting = true;
+            if (pendingIds.isEmpty() && !isStopped) {
+                LockSupport.park(this);
+            }
+            isDispatcherWaiting = false;
+        }
+    }
+
+    private void deliver(List<AvailabilityChange> changes) {
+        for (AvailabilityTracerObserver observer : currentObservers) {
+            try {
+                observer.traceablesAvailabilityChanged(changes);
+            } catch (RuntimeException e) {
+                EventLogs.get().log(EventLevel.WARN, LOG_SOURCE, "Availability observer %s failed: %s",
+                        observer.getObserverId(), e);
+            }
+        }
     }
 }
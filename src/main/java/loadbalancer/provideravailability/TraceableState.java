@@ -0,0 +1,41 @@
+package loadbalancer.provideravailability;
+
+// Point-in-time view of a traceable's availability, e.g. to checkpoint it across restarts
+public class TraceableState {
+
+    private final String id;
+    private final boolean isAlive;
+    private final boolean isExcluded;
+    private final int reInclusionCount;
+
+    /**
+     * @param reInclusionCount heartbeats the traceable still needs to be re-included; 0 when no re-inclusion is pending
+     */
+    public TraceableState(String id, boolean isAlive, boolean isExcluded, int reInclusionCount) {
+        if (id == null)
+            throw new IllegalArgumentException("Traceable id can not be null");
+        if (reInclusionCount < 0)
+            throw new IllegalArgumentException("Re-inclusion count can not be negative");
+
+        this.id = id;
+        this.isAlive = isAlive;
+        this.isExcluded = isExcluded;
+        this.reInclusionCount = reInclusionCount;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isAlive() {
+        return isAlive;
+    }
+
+    public boolean isExcluded() {
+        return isExcluded;
+    }
+
+    public int getReInclusionCount() {
+        return reInclusionCount;
+    }
+}
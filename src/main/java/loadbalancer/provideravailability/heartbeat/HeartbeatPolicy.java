@@ -0,0 +1,77 @@
+package loadbalancer.provideravailability.heartbeat;
+
+public class HeartbeatPolicy {
+
+    public static final int DEFAULT_TRACE_FREQUENCY_IN_MS = 2 * 1000;
+
+    public static final int DEFAULT_PROBE_DEADLINE_IN_MS = 1000;
+
+    public static final int DEFAULT_MAX_CONCURRENT_PROBES = 1024;
+
+    public static final int DEFAULT_RE_INCLUSION_HEARTBEAT_COUNT = 2;
+
+    // Highest count the packed availability state can hold
+    public static final int MAX_RE_INCLUSION_HEARTBEAT_COUNT = (1 << 23) - 1;
+
+    public static final HeartbeatPolicy DEFAULT = new HeartbeatPolicy(DEFAULT_TRACE_FREQUENCY_IN_MS,
+            DEFAULT_PROBE_DEADLINE_IN_MS, DEFAULT_MAX_CONCURRENT_PROBES, DEFAULT_RE_INCLUSION_HEARTBEAT_COUNT, null);
+
+    private final int traceFrequencyInMs;
+    private final int probeDeadlineInMs;
+    private final int maxConcurrentProbes;
+    private final int reInclusionHeartbeatCount;
+    private final PhiAccrualPolicy phiAccrualPolicy;
+
+    /**
+     * @param traceFrequencyInMs        probe interval; with phi accrual, the interval after a recovery
+     * @param reInclusionHeartbeatCount heartbeats an excluded provider needs before it is re-included
+     * @param phiAccrualPolicy          null keeps the fixed interval detector where one failed check means dead
+     */
+    public HeartbeatPolicy(int traceFrequencyInMs, int probeDeadlineInMs, int maxConcurrentProbes,
+                           int reInclusionHeartbeatCount, PhiAccrualPolicy phiAccrualPolicy) {
+        if (traceFrequencyInMs <= 0)
+            throw new IllegalArgumentException("Frequency must be positive");
+        if (probeDeadlineInMs <= 0)
+            throw new IllegalArgumentException("Probe deadline must be positive");
+        if (maxConcurrentProbes <= 0)
+            throw new IllegalArgumentException("Max concurrent probes must be positive");
+        if (reInclusionHeartbeatCount <= 0 || reInclusionHeartbeatCount > MAX_RE_INCLUSION_HEARTBEAT_COUNT)
+            throw new IllegalArgumentException("Re-inclusion heartbeat count must be in [1, " +
+                    MAX_RE_INCLUSION_HEARTBEAT_COUNT + "]");
+        if (phiAccrualPolicy != null && (traceFrequencyInMs < phiAccrualPolicy.getMinIntervalInMs()
+                || traceFrequencyInMs > phiAccrualPolicy.getMaxIntervalInMs()))
+            throw new IllegalArgumentException("Frequency must be between the phi accrual min and max intervals");
+
+        this.traceFrequencyInMs = traceFrequencyInMs;
+        this.probeDeadlineInMs = probeDeadlineInMs;
+        this.maxConcurrentProbes = maxConcurrentProbes;
+        this.reInclusionHeartbeatCount = reInclusionHeartbeatCount;
+        this.phiAccrualPolicy = phiAccrualPolicy;
+    }
+
+    public static HeartbeatPolicy phiAccrual(PhiAccrualPolicy phiAccrualPolicy) {
+        return new HeartbeatPolicy(DEFAULT_TRACE_FREQUENCY_IN_MS, DEFAULT_PROBE_DEADLINE_IN_MS,
+                DEFAULT_MAX_CONCURRENT_PROBES, DEFAULT_RE_INCLUSION_HEARTBEAT_COUNT, phiAccrualPolicy);
+    }
+
+    public int getTraceFrequencyInMs() {
+        return traceFrequencyInMs;
+    }
+
+    public int getProbeDeadlineInMs() {
+        return probeDeadlineInMs;
+    }
+
+    public int getMaxConcurrentProbes() {
+        return maxConcurrentProbes;
+    }
+
+    public int getReInclusionHeartbeatCount() {
+        return reInclusionHeartbeatCount;
+    }
+
+    // Null in fixed interval mode
+    public PhiAccrualPolicy getPhiAccrualPolicy() {
+        return phiAccrualPolicy;
+    }
+}
@@ -0,0 +1,140 @@
+package loadbalancer.provideravailability.heartbeat;
+
+import loadbalancer.concurrency.HashedTimingWheel;
+import loadbalancer.concurrency.VirtualThreadExecutors;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs {@link HeartbeatTraceable#check()} off the timing wheel, on virtual threads where the JVM
+ * supports them. Every probe has a deadline after which it is reported as timed out, and a global
+ * permit pool caps how many checks may run at once.
+ */
+public class HeartbeatProber {
+
+  public interface ProbeCallback {
+
+    // Exactly one of probed() and timedOut() is called per started probe, whichever of check() and the deadline
+    // comes first
+    void probed(boolean isAlive, long checkLatencyInNanos);
+
+    void timedOut(long checkLatencyInNanos);
+
+    // Called once check() has actually returned, which may be after the deadline
+    void finished();
+  }
+
+  private final HashedTimingWheel timingWheel;
+
+  private final ExecutorService probeExecutor;
+
+  private final Semaphore probePermits;
+
+  private final int probeDeadlineInMs;
+
+  public HeartbeatProber(HashedTimingWheel timingWheel, int probeDeadlineInMs, int maxConcurrentProbes) {
+    if (timingWheel == null) throw new IllegalArgumentException("HashedTimingWheel can not be null");
+
+    if (probeDeadlineInMs <= 0) throw new IllegalArgumentException("Probe deadline must be positive");
+
+    if (maxConcurrentProbes <= 0)
+      throw new IllegalArgumentException("Max concurrent probes must be positive");
+
+    this.timingWheel = timingWheel;
+    this.probeDeadlineInMs = probeDeadlineInMs;
+    this.probePermits = new Semaphore(maxConcurrentProbes);
+    this.probeExecutor = VirtualThreadExecutors.newPerTaskExecutor("heartbeat-probe");
+  }
+
+  /**
+   * Starts a probe and returns immediately. Returns false when the concurrency cap is reached, in
+   * which case the callback is not invoked and the previous aliveness is kept.
+   */
+  public boolean probe(HeartbeatTraceable traceable, ProbeCallback callback) {
+    if (!probePermits.tryAcquire()) return false;
+
+    Probe probe = new Probe(traceable, callback);
+    try {
+      probe.future = probeExecutor.submit(probe::run);
+    } catch (RejectedExecutionException e) {
+      probePermits.release();
+      return false;
+    }
+
+    HashedTimingWheel.Timeout deadline = timingWheel.schedule(probe::expire, probeDeadlineInMs);
+    probe.deadline = deadline;
+
+    // The probe may have finished before the deadline was armed; run() could not cancel it then
+    if (probe.isFinished) deadline.cancel();
+    return true;
+  }
+
+  // Interrupts running checks; probes started afterwards are refused
+  public void stop() {
+    probeExecutor.shutdownNow();
+  }
+
+  /**
+   * One probe, owned by whichever of its run and its deadline starts first. A deadline that wins
+   * before the check started has to give the permit back itself, since run() will never do it.
+   */
+  private final class Probe {
+
+    private final HeartbeatTraceable traceable;
+    private final ProbeCallback callback;
+    private final long startTime = System.nanoTime();
+
+    private final AtomicBoolean isStarted = new AtomicBoolean();
+    private final AtomicBoolean isReported = new AtomicBoolean();
+
+    private volatile Future<?> future;
+    private volatile HashedTimingWheel.Timeout deadline;
+    private volatile boolean isFinished;
+
+    private Probe(HeartbeatTraceable traceable, ProbeCallback callback) {
+      this.traceable = traceable;
+      this.callback = callback;
+    }
+
+    private void run() {
+      if (!isStarted.compareAndSet(false, true)) return;
+
+      boolean isAlive = false;
+      try {
+        isAlive = traceable.check();
+      } catch (RuntimeException e) {
+        isAlive = false;
+      } finally {
+        isFinished = true;
+        HashedTimingWheel.Timeout current = deadline;
+        if (current != null) current.cancel();
+
+        probePermits.release();
+        if (isReported.compareAndSet(false, true))
+          callback.probed(isAlive, System.nanoTime() - startTime);
+        callback.finished();
+      }
+    }
+
+    private void expire() {
+      if (!isReported.compareAndSet(false, true)) return;
+
+      boolean isQueued = isStarted.compareAndSet(false, true);
+
+      // Reported before the interrupt, so the check can not finish ahead of its own timeout
+      callback.timedOut(System.nanoTime() - startTime);
+      Future<?> current = future;
+      if (current != null) current.cancel(true);
+
+      if (isQueued) {
+        isFinished = true;
+        probePermits.release();
+        callback.finished();
+      }
+    }
+  }
+}
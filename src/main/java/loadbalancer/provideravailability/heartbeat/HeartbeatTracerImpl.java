@@ -1,9 +1,14 @@
 package loadbalancer.provideravailability.heartbeat;
 
+import loadbalancer.concurrency.HashedTimingWheel;
+import loadbalancer.eventlog.EventLevel;
+import loadbalancer.eventlog.EventLogs;
+import loadbalancer.metrics.LoadBalancerMetrics;
+import loadbalancer.metrics.ProviderMetrics;
 import loadbalancer.provideravailability.AvailabilityTracer;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class HeartbeatTracerImpl implements HeartbeatTracer {
 
@@ -13,13 +18,49 @@ public class HeartbeatTracerImpl implements HeartbeatTracer {
 
   private final int traceFrequencyInMs;
 
-  private final Timer timer;
-  private final TimerTask timerTask;
+  private final HashedTimingWheel timingWheel;
+
+  private final HeartbeatProber prober;
+
+  private final LoadBalancerMetrics metrics;
+
+  // Null in fixed interval mode
+  private final PhiAccrualFailureDetector failureDetector;
+
+  private final AtomicBoolean isProbing = new AtomicBoolean();
+
+  private final HeartbeatProber.ProbeCallback probeCallback =
+      new HeartbeatProber.ProbeCallback() {
+        @Override
+        public void probed(boolean isAlive, long checkLatencyInNanos) {
+          report(isAlive, checkLatencyInNanos);
+        }
+
+        @Override
+        public void timedOut(long checkLatencyInNanos) {
+          reportTimedOut(checkLatencyInNanos);
+        }
+
+        @Override
+        public void finished() {
+          isProbing.set(false);
+        }
+      };
+
+  private volatile HashedTimingWheel.Timeout timeout;
+
+  private volatile boolean isStopped;
 
   private static final int FIRST_RUN_DELAY_IN_MS = 2 * 1000;
 
   public HeartbeatTracerImpl(
-      HeartbeatTraceable traceable, AvailabilityTracer availabilityTracer, int traceFrequencyInMs) {
+      HeartbeatTraceable traceable,
+      AvailabilityTracer availabilityTracer,
+      int traceFrequencyInMs,
+      HashedTimingWheel timingWheel,
+      HeartbeatProber prober,
+      LoadBalancerMetrics metrics,
+      PhiAccrualPolicy phiAccrualPolicy) {
     if (traceable == null) throw new IllegalArgumentException("HeartbeatTraceable can not be null");
 
     if (availabilityTracer == null)
@@ -27,20 +68,20 @@ public class HeartbeatTracerImpl implements HeartbeatTracer {
 
     if (traceFrequencyInMs <= 0) throw new IllegalArgumentException("Frequency must be positive");
 
+    if (timingWheel == null) throw new IllegalArgumentException("HashedTimingWheel can not be null");
+
+    if (metrics == null) throw new IllegalArgumentException("LoadBalancerMetrics can not be null");
+
     this.traceable = traceable;
     this.availabilityTracer = availabilityTracer;
     this.traceFrequencyInMs = traceFrequencyInMs;
-
-    this.timer = new Timer(traceable.getTraceableId(), true);
-    this.timerTask =
-        new TimerTask() {
-          @Override
-          public void run() {
-            boolean traceResult = trace();
-            System.out.println(String.format("Heartbeat checked for %s: %s", traceable.getTraceableId(), traceResult));
-            availabilityTracer.updateAliveness(traceable, traceResult);
-          }
-        };
+    this.timingWheel = timingWheel;
+    this.prober = prober;
+    this.metrics = metrics;
+    this.failureDetector =
+        phiAccrualPolicy == null
+            ? null
+            : new PhiAccrualFailureDetector(phiAccrualPolicy, traceFrequencyInMs);
   }
 
   @Override
@@ -50,12 +91,103 @@ public class HeartbeatTracerImpl implements HeartbeatTracer {
 
   @Override
   public void start() {
-    timer.scheduleAtFixedRate(timerTask, FIRST_RUN_DELAY_IN_MS, traceFrequencyInMs);
+    // Spread providers over the whole period instead of probing them all on the same tick
+    long phaseInMs = ThreadLocalRandom.current().nextLong(traceFrequencyInMs);
+    if (failureDetector == null) {
+      timeout =
+          timingWheel.scheduleAtFixedRate(
+              this::heartbeat, FIRST_RUN_DELAY_IN_MS + phaseInMs, traceFrequencyInMs);
+    } else {
+      scheduleNext(FIRST_RUN_DELAY_IN_MS + phaseInMs);
+    }
   }
 
   @Override
   public void stop() {
-    timer.cancel();
+    isStopped = true;
+    HashedTimingWheel.Timeout current = timeout;
+    if (current != null) current.cancel();
+  }
+
+  // Phi accrual mode re-arms a one-shot timeout after every heartbeat with the interval it adapted to
+  private void scheduleNext(long delayInMs) {
+    if (isStopped) return;
+
+    HashedTimingWheel.Timeout next = timingWheel.schedule(this::heartbeat, delayInMs);
+    timeout = next;
+    if (isStopped) next.cancel();
+  }
+
+  private void heartbeat() {
+    if (prober == null) {
+      long startTime = System.nanoTime();
+      boolean isAlive = trace();
+      report(isAlive, System.nanoTime() - startTime);
+      return;
+    }
+
+    // A probe that is still hanging has already been reported dead by its deadline
+    if (!isProbing.compareAndSet(false, true)) {
+      skipped();
+      return;
+    }
+
+    if (!prober.probe(traceable, probeCallback)) {
+      isProbing.set(false);
+      skipped();
+    }
+  }
+
+  // Fixed interval mode keeps the previous aliveness; phi keeps accruing while no answer comes back
+  private void skipped() {
+    if (failureDetector == null) return;
+
+    if (!failureDetector.isAvailable(System.nanoTime()))
+      availabilityTracer.updateAliveness(traceable, false);
+    scheduleNext(failureDetector.getIntervalInMs());
+  }
+
+  private void report(boolean traceResult, long checkLatencyInNanos) {
+    ProviderMetrics providerMetrics = metrics.getProviderMetrics(traceable.getTraceableId());
+    if (providerMetrics != null) providerMetrics.recordHeartbeat(checkLatencyInNanos, traceResult);
+
+    // Per-heartbeat chatter; dropped before any allocation unless DEBUG is enabled
+    EventLogs.get()
+        .log(
+            EventLevel.DEBUG,
+            "heartbeat",
+            "Heartbeat checked for %s: %s",
+            traceable.getTraceableId(),
+            traceResult);
+
+    if (failureDetector == null) {
+      availabilityTracer.updateAliveness(traceable, traceResult);
+      return;
+    }
+
+    // A single failed check only raises suspicion; the traceable is dead once phi crosses the threshold
+    long now = System.nanoTime();
+    long nextIntervalInMs =
+        traceResult ? failureDetector.heartbeatSucceeded(now) : failureDetector.heartbeatFailed();
+    availabilityTracer.updateAliveness(traceable, traceResult || failureDetector.isAvailable(now));
+    scheduleNext(nextIntervalInMs);
+  }
+
+  // A hanging check is not just suspicious: the traceable is dead until a check succeeds again
+  private void reportTimedOut(long checkLatencyInNanos) {
+    ProviderMetrics providerMetrics = metrics.getProviderMetrics(traceable.getTraceableId());
+    if (providerMetrics != null) providerMetrics.recordHeartbeat(checkLatencyInNanos, false);
+
+    EventLogs.get()
+        .log(
+            EventLevel.DEBUG,
+            "heartbeat",
+            "Heartbeat timed out for %s after %d ms",
+            traceable.getTraceableId(),
+            checkLatencyInNanos / 1_000_000);
+
+    availabilityTracer.updateAliveness(traceable, false);
+    if (failureDetector != null) scheduleNext(failureDetector.heartbeatTimedOut());
   }
 
   private boolean trace() {
@@ -0,0 +1,120 @@
+package loadbalancer.provideravailability.heartbeat;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phi accrual failure detector (Hayashibara et al.) adapted to active probing. Each successful check is an
+ * arrival; since the next probe is sent a known interval later, the detector learns how late arrivals are
+ * relative to that expectation, which folds check latency and timer jitter into one normal distribution. Phi is
+ * -log10 of the chance that a healthy traceable would still not have answered by now.
+ *
+ * <p>The probe interval doubles after consecutive successes up to the max interval, and drops to the min interval
+ * as soon as a check fails or an answer arrives late enough to raise phi to half the threshold, so suspicion is
+ * confirmed or cleared quickly. A check that hits its deadline is not left to accrue: the traceable is dead until
+ * a check succeeds again.
+ */
+public class PhiAccrualFailureDetector {
+
+    private final PhiAccrualPolicy policy;
+    private final double minStdDeviationInNanos;
+    private final long baseIntervalInMs;
+
+    // Lateness of recent arrivals in nanos, as a ring with running sums
+    private final double[] samples;
+    private int sampleCount;
+    private int nextSampleIndex;
+    private double sampleSum;
+    private double squaredSampleSum;
+
+    private boolean hasArrived;
+    private boolean isLastCheckSuccessful;
+    private boolean isTimedOut;
+    private long expectedArrivalInNanos;
+    private long intervalInMs;
+
+    public PhiAccrualFailureDetector(PhiAccrualPolicy policy, long baseIntervalInMs) {
+        if (policy == null)
+            throw new IllegalArgumentException("Phi accrual policy can not be null");
+        if (baseIntervalInMs <= 0)
+            throw new IllegalArgumentException("Base interval must be positive");
+
+        this.policy = policy;
+        this.minStdDeviationInNanos = TimeUnit.MILLISECONDS.toNanos(policy.getMinStdDeviationInMs());
+        this.baseIntervalInMs = baseIntervalInMs;
+        this.samples = new double[policy.getSampleWindowSize()];
+        this.intervalInMs = baseIntervalInMs;
+    }
+
+    // Returns the delay until the next probe
+    public synchronized long heartbeatSucceeded(long nowInNanos) {
+        boolean isSuspected = hasArrived && phi(nowInNanos) >= policy.getThreshold() / 2;
+        if (hasArrived && isLastCheckSuccessful)
+            addSample(nowInNanos - expectedArrivalInNanos);
+
+        if (isSuspected)
+            intervalInMs = policy.getMinIntervalInMs();
+        else if (isLastCheckSuccessful)
+            intervalInMs = Math.min(intervalInMs * 2, policy.getMaxIntervalInMs());
+        else
+            intervalInMs = baseIntervalInMs;
+
+        hasArrived = true;
+        isLastCheckSuccessful = true;
+        isTimedOut = false;
+        expectedArrivalInNanos = nowInNanos + TimeUnit.MILLISECONDS.toNanos(intervalInMs);
+        return intervalInMs;
+    }
+
+    // Returns the delay until the next probe. The expected arrival is kept, so phi keeps growing until an answer.
+    public synchronized long heartbeatFailed() {
+        isLastCheckSuccessful = false;
+        intervalInMs = policy.getMinIntervalInMs();
+        return intervalInMs;
+    }
+
+    // Returns the delay until the next probe; phi stays infinite until a check succeeds
+    public synchronized long heartbeatTimedOut() {
+        isTimedOut = true;
+        return heartbeatFailed();
+    }
+
+    public synchronized long getIntervalInMs() {
+        return intervalInMs;
+    }
+
+    public synchronized double phi(long nowInNanos) {
+        if (!hasArrived || isTimedOut)
+            return Double.POSITIVE_INFINITY;
+
+        double mean = sampleCount == 0 ? 0 : sampleSum / sampleCount;
+        double variance = sampleCount == 0 ? 0 : Math.max(0, squaredSampleSum / sampleCount - mean * mean);
+        double stdDeviation = Math.max(Math.sqrt(variance), minStdDeviationInNanos);
+
+        // Logistic approximation of the normal tail, as used by Akka and Cassandra
+        double lateness = nowInNanos - expectedArrivalInNanos;
+        double y = (lateness - mean) / stdDeviation;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (lateness > mean)
+            return -Math.log10(e / (1.0 + e));
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    public boolean isAvailable(long nowInNanos) {
+        return phi(nowInNanos) < policy.getThreshold();
+    }
+
+    private void addSample(double lateness) {
+        if (sampleCount == samples.length) {
+            double evicted = samples[nextSampleIndex];
+            sampleSum -= evicted;
+            squaredSampleSum -= evicted * evicted;
+        } else {
+            sampleCount++;
+        }
+
+        samples[nextSampleIndex] = lateness;
+        sampleSum += lateness;
+        squaredSampleSum += lateness * lateness;
+        nextSampleIndex = (nextSampleIndex + 1) % samples.length;
+    }
+}
@@ -0,0 +1,66 @@
+package loadbalancer.provideravailability.heartbeat;
+
+public class PhiAccrualPolicy {
+
+    // Stable traceables are probed every 10 s, a fifth of the fixed detector's traffic; see maxIntervalInMs for what
+    // that costs in detection time
+    public static final PhiAccrualPolicy DEFAULT = new PhiAccrualPolicy(8.0, 100, 200, 250, 10 * 1000);
+
+    private final double threshold;
+    private final long minStdDeviationInMs;
+    private final int sampleWindowSize;
+    private final long minIntervalInMs;
+    private final long maxIntervalInMs;
+
+    /**
+     * @param threshold           phi at or above which the traceable is considered dead; 8 means a false positive
+     *                            chance of about 1e-8 under the learned distribution
+     * @param minStdDeviationInMs floor for the learned deviation, so very regular providers are not judged on noise
+     * @param sampleWindowSize    number of recent arrivals the distribution is learned from
+     * @param minIntervalInMs     probe interval used while a traceable is suspected
+     * @param maxIntervalInMs     probe interval a stable traceable backs off to. A traceable that dies while idle
+     *                            right after a successful check is noticed at its next probe, so the worst-case
+     *                            detection time is this interval plus the probe deadline; a probe that hits its
+     *                            deadline marks the traceable dead at once. Failures under traffic are caught
+     *                            sooner by the circuit breakers
+     */
+    public PhiAccrualPolicy(double threshold, long minStdDeviationInMs, int sampleWindowSize,
+                            long minIntervalInMs, long maxIntervalInMs) {
+        if (!(threshold > 0))
+            throw new IllegalArgumentException("Phi threshold must be positive");
+        if (minStdDeviationInMs <= 0)
+            throw new IllegalArgumentException("Min standard deviation must be positive");
+        if (sampleWindowSize <= 0)
+            throw new IllegalArgumentException("Sample window size must be positive");
+        if (minIntervalInMs <= 0)
+            throw new IllegalArgumentException("Min interval must be positive");
+        if (maxIntervalInMs < minIntervalInMs)
+            throw new IllegalArgumentException("Max interval can not be less than min interval");
+
+        this.threshold = threshold;
+        this.minStdDeviationInMs = minStdDeviationInMs;
+        this.sampleWindowSize = sampleWindowSize;
+        this.minIntervalInMs = minIntervalInMs;
+        this.maxIntervalInMs = maxIntervalInMs;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public long getMinStdDeviationInMs() {
+        return minStdDeviationInMs;
+    }
+
+    public int getSampleWindowSize() {
+        return sampleWindowSize;
+    }
+
+    public long getMinIntervalInMs() {
+        return minIntervalInMs;
+    }
+
+    public long getMaxIntervalInMs() {
+        return maxIntervalInMs;
+    }
+}
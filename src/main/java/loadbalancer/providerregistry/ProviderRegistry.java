@@ -9,6 +9,8 @@ public interface ProviderRegistry {
 
     void unregister(Provider provider);
 
+    void unregister(Iterable<Provider> providers);
+
     boolean isRegistered(Provider provider);
 
     Iterable<Provider> getProviders();
@@ -1,14 +1,21 @@
 package loadbalancer.providerregistry;
 
+import loadbalancer.eventlog.EventLevel;
+import loadbalancer.eventlog.EventLogs;
+
 import provider.Provider;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class ProviderRegistryImpl implements ProviderRegistry {
 
+    private static final String LOG_SOURCE = "registry";
+
     private Map<String, Provider> registeredProviders;
 
     private int capacity;
@@ -46,6 +53,13 @@ public class ProviderRegistryImpl implements ProviderRegistry {
         unregisterProvider(provider);
     }
 
+    @Override
+    public void unregister(Iterable<Provider> providers) {
+        List<Provider> providerList = new ArrayList<>();
+        providers.forEach(providerList::add);
+        unregisterProviders(providerList);
+    }
+
     @Override
     public boolean isRegistered(Provider provider) {
         return isRegisteredProvider(provider);
@@ -63,7 +77,7 @@ public class ProviderRegistryImpl implements ProviderRegistry {
         if (!isAvailableToRegister())
             throw new IllegalStateException(String.format("Reached to capacity. No provider is acceptable"));
 
-        System.out.println("Registered provider id: " + provider.getId());
+        EventLogs.get().log(EventLevel.INFO, LOG_SOURCE, "Registered provider id: %s", provider.getId());
 
         registeredProviders.put(provider.getId(), provider);
         observerSubject.notifyProviderRegistered(provider);
@@ -80,9 +94,24 @@ public class ProviderRegistryImpl implements ProviderRegistry {
                 throw new IllegalArgumentException(String.format("Provider is already registered. Id: %s", provider.getId()));
         }
 
+        // Check for duplicates inside the batch as well
+        Set<String> batchIds = new HashSet<>();
+        for (var provider : providers) {
+            if (!batchIds.add(provider.getId()))
+                throw new IllegalArgumentException(String.format("Provider is given more than once. Id: %s", provider.getId()));
+        }
+
+        // One INFO event per batch; a large bulk registration would otherwise overrun the event log
+        boolean isDebugEnabled = EventLogs.get().isEnabled(EventLevel.DEBUG);
         for (var provider : providers) {
-          registerProvider(provider);
+            if (isDebugEnabled)
+                EventLogs.get().log(EventLevel.DEBUG, LOG_SOURCE, "Registered provider id: %s", provider.getId());
+            registeredProviders.put(provider.getId(), provider);
         }
+        EventLogs.get().log(EventLevel.INFO, LOG_SOURCE, "Registered %d providers", providers.size());
+
+        // Observers receive the whole batch at once
+        observerSubject.notifyProvidersRegistered(providers);
     }
 
     private synchronized void unregisterProvider(Provider provider) {
@@ -93,6 +122,26 @@ public class ProviderRegistryImpl implements ProviderRegistry {
         observerSubject.notifyProviderUnregistered(provider);
     }
 
+    private synchronized void unregisterProviders(List<Provider> providers) {
+        Set<String> batchIds = new HashSet<>();
+        for (var provider : providers) {
+            if (!isRegisteredProvider(provider))
+                throw new IllegalArgumentException(String.format("Provider is not registered. Id: %s", provider.getId()));
+            if (!batchIds.add(provider.getId()))
+                throw new IllegalArgumentException(String.format("Provider is given more than once. Id: %s", provider.getId()));
+        }
+
+        boolean isDebugEnabled = EventLogs.get().isEnabled(EventLevel.DEBUG);
+        for (var provider : providers) {
+            if (isDebugEnabled)
+                EventLogs.get().log(EventLevel.DEBUG, LOG_SOURCE, "Unregistered provider id: %s", provider.getId());
+            registeredProviders.remove(provider.getId());
+        }
+        EventLogs.get().log(EventLevel.INFO, LOG_SOURCE, "Unregistered %d providers", providers.size());
+
+        observerSubject.notifyProvidersUnregistered(providers);
+    }
+
     private synchronized boolean isRegisteredProvider(Provider provider) {
         return registeredProviders.containsKey(provider.getId());
     }
@@ -2,6 +2,8 @@ package loadbalancer.providerregistry;
 
 import provider.Provider;
 
+import java.util.Collection;
+
 public interface ProviderRegistryObserver {
 
     String getObserverId();
@@ -9,4 +11,13 @@ public interface ProviderRegistryObserver {
     void providerRegistered(Provider provider);
 
     void providerUnregistered(Provider provider);
+
+    // Bulk membership changes; observers that rebuild derived state override these to do it once per batch
+    default void providersRegistered(Collection<Provider> providers) {
+        providers.forEach(this::providerRegistered);
+    }
+
+    default void providersUnregistered(Collection<Provider> providers) {
+        providers.forEach(this::providerUnregistered);
+    }
 }
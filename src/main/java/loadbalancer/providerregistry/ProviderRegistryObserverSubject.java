@@ -2,6 +2,8 @@ package loadbalancer.providerregistry;
 
 import provider.Provider;
 
+import java.util.Collection;
+
 public interface ProviderRegistryObserverSubject {
 
     void attach(ProviderRegistryObserver observer);
@@ -11,4 +13,8 @@ public interface ProviderRegistryObserverSubject {
     void notifyProviderRegistered(Provider provider);
 
     void notifyProviderUnregistered(Provider provider);
+
+    void notifyProvidersRegistered(Collection<Provider> providers);
+
+    void notifyProvidersUnregistered(Collection<Provider> providers);
 }
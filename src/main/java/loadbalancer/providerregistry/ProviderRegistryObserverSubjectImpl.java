@@ -2,7 +2,8 @@ package loadbalancer.providerregistry;
 
 import provider.Provider;
 
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -12,7 +13,8 @@ public class ProviderRegistryObserverSubjectImpl implements ProviderRegistryObse
         private Object lock = new Object();
 
     public ProviderRegistryObserverSubjectImpl() {
-        observers = new HashMap<>();
+        // Observers are notified in the order they were attached, so later ones can rely on earlier ones' state
+        observers = new LinkedHashMap<>();
     }
 
     @Override
@@ -48,4 +50,24 @@ public class ProviderRegistryObserverSubjectImpl implements ProviderRegistryObse
 
         currentObservers.forEach(observer -> observer.providerUnregistered(provider));
     }
+
+    @Override
+    public void notifyProvidersRegistered(Collection<Provider> providers) {
+        List<ProviderRegistryObserver> currentObservers;
+        synchronized (lock) {
+            currentObservers = observers.values().stream().toList();
+        }
+
+        currentObservers.forEach(observer -> observer.providersRegistered(providers));
+    }
+
+    @Override
+    public void notifyProvidersUnregistered(Collection<Provider> providers) {
+        List<ProviderRegistryObserver> currentObservers;
+        synchronized (lock) {
+            currentObservers = observers.values().stream().toList();
+        }
+
+        currentObservers.forEach(observer -> observer.providersUnregistered(providers));
+    }
 }
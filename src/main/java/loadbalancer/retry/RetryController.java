@@ -0,0 +1,67 @@
+package loadbalancer.retry;
+
+import loadbalancer.concurrency.TokenBucket;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Global retry budget. Successful requests refill the bucket by the budget ratio and every retry spends a whole
+ * token, so once an incident has drained the saved-up burst, retries can add at most that ratio of the healthy
+ * traffic instead of multiplying the load.
+ */
+public class RetryController {
+
+    private final RetryPolicy policy;
+    private final TokenBucket budget;
+
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder budgetExhaustedCount = new LongAdder();
+
+    public RetryController(RetryPolicy policy) {
+        if (policy == null)
+            throw new IllegalArgumentException("Retry policy can not be null");
+
+        this.policy = policy;
+        this.budget = new TokenBucket(policy.getMaxRetryBurst(), policy.getMaxRetryBurst());
+    }
+
+    public RetryPolicy getPolicy() {
+        return policy;
+    }
+
+    public void requestSucceeded() {
+        budget.deposit(policy.getRetryBudgetRatio());
+    }
+
+    // Attempt is the number of calls already made for the request
+    public boolean tryAcquireRetry(int attempt) {
+        if (attempt >= policy.getMaxAttempts())
+            return false;
+
+        if (!budget.tryAcquire()) {
+            budgetExhaustedCount.increment();
+            return false;
+        }
+
+        retryCount.increment();
+        return true;
+    }
+
+    // For a retry that could not be sent, e.g. no other provider was available
+    public void releaseRetry() {
+        retryCount.decrement();
+        budget.release();
+    }
+
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.sum();
+    }
+
+    public double getAvailableRetries() {
+        return budget.getTokens();
+    }
+}
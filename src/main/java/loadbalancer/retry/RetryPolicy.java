@@ -0,0 +1,40 @@
+package loadbalancer.retry;
+
+public class RetryPolicy {
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 0.1, 10);
+
+    private final int maxAttempts;
+    private final double retryBudgetRatio;
+    private final double maxRetryBurst;
+
+    /**
+     * @param maxAttempts      calls per request including the first one
+     * @param retryBudgetRatio retries earned per successful request, e.g. 0.1 allows one retry per ten successes
+     * @param maxRetryBurst    retries that can be saved up, and that are available right after start
+     */
+    public RetryPolicy(int maxAttempts, double retryBudgetRatio, double maxRetryBurst) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("Max attempts must be at least 1");
+        if (!(retryBudgetRatio > 0 && retryBudgetRatio <= 1))
+            throw new IllegalArgumentException("Retry budget ratio must be in (0, 1]");
+        if (!(maxRetryBurst >= 1))
+            throw new IllegalArgumentException("Max retry burst must be at least 1");
+
+        this.maxAttempts = maxAttempts;
+        this.retryBudgetRatio = retryBudgetRatio;
+        this.maxRetryBurst = maxRetryBurst;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public double getRetryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    public double getMaxRetryBurst() {
+        return maxRetryBurst;
+    }
+}
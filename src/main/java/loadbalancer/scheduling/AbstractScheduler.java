@@ -1,11 +1,21 @@
 package loadbalancer.scheduling;
 
+import loadbalancer.provideravailability.AvailabilityChange;
 import loadbalancer.provideravailability.AvailabilityTracerObserver;
 import loadbalancer.provideravailability.Traceable;
 import loadbalancer.providerregistry.ProviderRegistryObserver;
 import provider.Provider;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 
 public abstract class AbstractScheduler implements Scheduler, ProviderRegistryObserver, AvailabilityTracerObserver {
@@ -14,6 +24,13 @@ public abstract class AbstractScheduler implements Scheduler, ProviderRegistryOb
 
         private Provider provider;
         private boolean isAvailable;
+        private volatile int weight;
+        private final LongAdder outstandingRequests = new LongAdder();
+        private final PeakEwma latency = new PeakEwma(LATENCY_DECAY_TIME_IN_MS);
+        private volatile boolean isWarmingUp;
+        private volatile long warmUpStartedAt;
+        private volatile ConcurrencyLimit concurrencyLimit;
+        private final long registeredAt = System.nanoTime();
 
         public ProviderSchedulingNode(Provider provider) {
             this(provider, false);
@@ -22,6 +39,7 @@ public abstract class AbstractScheduler implements Scheduler, ProviderRegistryOb
         public ProviderSchedulingNode(Provider provider, boolean isAvailable) {
             this.provider = provider;
             this.isAvailable = isAvailable;
+            this.weight = provider.getWeight();
         }
 
         public Provider getProvider() {
@@ -36,35 +54,512 @@ public abstract class AbstractScheduler implements Scheduler, ProviderRegistryOb
         public void setAvailable(boolean available) {
             isAvailable = available;
         }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            this.weight = weight;
+        }
+
+        public long getOutstandingRequests() {
+            // A completion racing with re-registration can briefly push the striped sum below zero
+            return Math.max(0, outstandingRequests.sum());
+        }
+
+        public void requestStarted() {
+            outstandingRequests.increment();
+        }
+
+        public void requestCompleted(long latencyInNanos) {
+            outstandingRequests.decrement();
+            latency.observe(latencyInNanos);
+
+            ConcurrencyLimit limit = concurrencyLimit;
+            if (limit != null)
+                limit.onSample(latencyInNanos, getOutstandingRequests() + 1);
+        }
+
+        // Null when concurrency limits are disabled
+        public ConcurrencyLimit getConcurrencyLimit() {
+            return concurrencyLimit;
+        }
+
+        // Checked at selection and not reserved, so racing selections may overshoot the limit by a few requests
+        public boolean isAtConcurrencyLimit() {
+            ConcurrencyLimit limit = concurrencyLimit;
+            return limit != null && getOutstandingRequests() >= limit.getLimit();
+        }
+
+        public double getLatencyCost() {
+            return latency.getCost();
+        }
+
+        public boolean isWarmingUp() {
+            return isWarmingUp;
+        }
+
+        private void startWarmUp(long now) {
+            warmUpStartedAt = now;
+            isWarmingUp = true;
+        }
+
+        // Lock-free; the node leaves warm-up lazily, on the first selection after its ramp is over
+        private double getWeightFraction(SlowStartPolicy policy, long now) {
+            double fraction = policy == null ? 1.0 : policy.getWeightFraction(now - warmUpStartedAt);
+            if (fraction >= 1.0)
+                isWarmingUp = false;
+            return fraction;
+        }
     }
 
+    private static final long LATENCY_DECAY_TIME_IN_MS = 10 * 1000;
+
+    // Picks per request before falling back to a scan for a node that is neither warming up nor at its limit
+    private static final int SELECTION_ATTEMPTS = 4;
+
+    private static final int MAX_ELIGIBLE_SCAN = 64;
+
+    private static final long NO_WARM_UP = Long.MIN_VALUE;
+
+    private final ProviderSchedulingNode[] noNodes = new ProviderSchedulingNode[0];
+
     protected String uuid = UUID.randomUUID().toString();
 
     protected Object lock = new Object();
 
+    private final LongAdder lockWaitTimeInNanos = new LongAdder();
+    private final LongAdder lockAcquisitionCount = new LongAdder();
+
+    // Written under lock, read lock-free by request callbacks
+    private final Map<String, ProviderSchedulingNode> providers = new ConcurrentHashMap<>();
+
+    // Weights that replace Provider.getWeight() for providers about to register
+    private final Map<String, Integer> initialWeights = new ConcurrentHashMap<>();
+
+    // Immutable view of available nodes, rebuilt under lock only when membership or availability changes
+    private volatile ProviderSchedulingNode[] availableNodes = noNodes;
+
+    // When the last ramp in the snapshot ends; NO_WARM_UP once it has, so selection stops paying for slow start
+    private final AtomicLong warmUpEndsAt = new AtomicLong(NO_WARM_UP);
+
+    private volatile SlowStartPolicy slowStartPolicy;
+
+    private volatile ConcurrencyLimitPolicy concurrencyLimitPolicy;
+
     @Override
     public String getObserverId() {
         return uuid;
     }
 
+    @Override
+    public String getNext() {
+        Provider provider = getNextProvider();
+        if (provider != null)
+            return provider.get();
+        return null;
+    }
+
+    @Override
+    public Provider getNextProvider() {
+        ProviderSchedulingNode nextNode = findNextEligible(availableNodes);
+        if (nextNode != null)
+            return nextNode.getProvider();
+        return null;
+    }
+
+    public int getAvailableCount() {
+        return availableNodes.length;
+    }
+
+    // Only key-affine schedulers use the key; the rest schedule it like any other request
+    @Override
+    public Provider getNextProvider(String key) {
+        return getNextProvider();
+    }
+
+    @Override
+    public int getNextProviders(Provider[] out, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > out.length)
+            throw new IndexOutOfBoundsException("Invalid batch range. Offset: " + offset + ", length: " + length);
+
+        // One snapshot serves the whole batch
+        ProviderSchedulingNode[] nodes = availableNodes;
+        if (nodes.length == 0 || length == 0)
+            return 0;
+
+        findNextBatch(nodes, out, offset, length);
+        if (!hasWarmingNodes() && concurrencyLimitPolicy == null)
+            return length;
+
+        // Nodes at their limit may leave fewer selections than asked for
+        int selectedCount = 0;
+        for (int i = offset; i < offset + length; i++) {
+            var node = findProviderNode(out[i]);
+            if (node != null && !isEligible(node, ThreadLocalRandom.current().nextDouble()))
+                node = findNextEligible(nodes);
+
+            out[i] = null;
+            if (node != null)
+                out[offset + selectedCount++] = node.getProvider();
+        }
+        return selectedCount;
+    }
+
+    /**
+     * Ramps providers that become available while others are already serving from a fraction of their share to the
+     * full share. Applies to every scheduler by turning away a warming node's picks in proportion to its ramp; load
+     * aware schedulers divide the node's load score by its ramp instead. Null disables slow start.
+     */
+    public void setSlowStartPolicy(SlowStartPolicy slowStartPolicy) {
+        this.slowStartPolicy = slowStartPolicy;
+    }
+
+    public SlowStartPolicy getSlowStartPolicy() {
+        return slowStartPolicy;
+    }
+
+    /**
+     * Gives every provider its own adaptive concurrency limit; null removes the limits. A node at its limit is
+     * skipped by selection, and when no eligible node is found the selection returns null instead of piling more
+     * requests onto a saturated provider.
+     */
+    public void setConcurrencyLimitPolicy(ConcurrencyLimitPolicy concurrencyLimitPolicy) {
+        long lockRequestedAt = System.nanoTime();
+        synchronized (lock) {
+            recordLockWait(lockRequestedAt);
+            this.concurrencyLimitPolicy = concurrencyLimitPolicy;
+            providers.values().forEach(this::resetConcurrencyLimit);
+        }
+    }
+
+    public ConcurrencyLimitPolicy getConcurrencyLimitPolicy() {
+        return concurrencyLimitPolicy;
+    }
+
+    /**
+     * Weight the provider's node starts with when the provider registers next, in place of Provider.getWeight().
+     * Observers notified later in the same registration, e.g. a state snapshot restore, can still change it.
+     */
+    public void setInitialWeight(Provider provider, int weight) {
+        if (weight <= 0)
+            throw new IllegalArgumentException("Weight must be positive");
+
+        initialWeights.put(provider.getId(), weight);
+    }
+
+    // For a registration that failed before the node was created
+    public void clearInitialWeight(Provider provider) {
+        initialWeights.remove(provider.getId());
+    }
+
+    @Override
+    public void updateWeight(Provider provider, int weight) {
+        if (weight <= 0)
+            throw new IllegalArgumentException("Weight must be positive");
+
+        long lockRequestedAt = System.nanoTime();
+        synchronized (lock) {
+            recordLockWait(lockRequestedAt);
+            var node = findProviderNode(provider);
+            if (node == null)
+                throw new IllegalArgumentException("Provider is not registered in scheduler. Id: " + provider.getId());
+
+            if (node.getWeight() != weight) {
+                node.setWeight(weight);
+                rebuildAvailableNodes();
+            }
+        }
+    }
+
+    @Override
+    public int getWeight(Provider provider) {
+        var node = findProviderNode(provider);
+        if (node == null)
+            throw new IllegalArgumentException("Provider is not registered in scheduler. Id: " + provider.getId());
+
+        return node.getWeight();
+    }
+
+    @Override
+    public void requestStarted(Provider provider) {
+        var node = findProviderNode(provider);
+        if (node != null)
+            node.requestStarted();
+    }
+
+    @Override
+    public void requestCompleted(Provider provider, long latencyInNanos) {
+        var node = findProviderNode(provider);
+        if (node != null)
+            node.requestCompleted(latencyInNanos);
+    }
+
+    @Override
+    public void providerRegistered(Provider provider) {
+        addRegisteredNode(provider);
+    }
+
+    @Override
+    public void providerUnregistered(Provider provider) {
+        removeRegisteredNode(provider);
+    }
+
+    @Override
+    public void providersRegistered(Collection<Provider> providers) {
+        long lockRequestedAt = System.nanoTime();
+        synchronized (lock) {
+            recordLockWait(lockRequestedAt);
+            providers.forEach(this::putRegisteredNode);
+            rebuildAvailableNodes();
+        }
+    }
+
+    @Override
+    public void providersUnregistered(Collection<Provider> providers) {
+        long lockRequestedAt = System.nanoTime();
+        synchronized (lock) {
+            recordLockWait(lockRequestedAt);
+            providers.forEach(provider -> this.providers.remove(provider.getId()));
+            rebuildAvailableNodes();
+        }
+    }
+
     @Override
     public void traceableAvailabilityChanged(Traceable traceable, boolean isAvailable) {
         updateAvailable(traceable.getTraceableId(), isAvailable);
     }
 
+    @Override
+    public void traceablesAvailabilityChanged(List<AvailabilityChange> changes) {
+        long lockRequestedAt = System.nanoTime();
+        synchronized (lock) {
+            recordLockWait(lockRequestedAt);
+            boolean isChanged = false;
+            for (var change : changes) {
+                var node = findProviderNode(change.getTraceable().getTraceableId());
+                // Published for an earlier registration under the same id and delivered after it registered again
+                if (node != null && change.getCreatedAt() < node.registeredAt)
+                    continue;
+
+                if (node != null && node.isAvailable() != change.isAvailable()) {
+                    setNodeAvailable(node, change.isAvailable());
+                    isChanged = true;
+                }
+            }
+
+            // One snapshot rebuild for the whole batch
+            if (isChanged)
+                rebuildAvailableNodes();
+        }
+    }
+
+    // Time spent waiting for the lock by membership, weight and availability updates; selection never takes it
+    public long getLockWaitTimeInNanos() {
+        return lockWaitTimeInNanos.sum();
+    }
+
+    public long getLockAcquisitionCount() {
+        return lockAcquisitionCount.sum();
+    }
+
     protected boolean isNodeAvailable(ProviderSchedulingNode node) {
         return node.isAvailable();
     }
 
     protected void updateAvailable(String key, boolean isAvailable) {
+        long lockRequestedAt = System.nanoTime();
         synchronized (lock) {
+            recordLockWait(lockRequestedAt);
             var node = findProviderNode(key);
-            if (node != null) {
-                node.setAvailable(isAvailable);
+            if (node != null && node.isAvailable() != isAvailable) {
+                setNodeAvailable(node, isAvailable);
+                rebuildAvailableNodes();
             }
         }
     }
-    protected abstract ProviderSchedulingNode findProviderNode(Provider provider);
 
-    protected abstract ProviderSchedulingNode findProviderNode(String id);
+    protected ProviderSchedulingNode findProviderNode(Provider provider) {
+        if (provider == null)
+            return null;
+
+        return findProviderNode(provider.getId());
+    }
+
+    protected ProviderSchedulingNode findProviderNode(String id) {
+        return providers.get(id);
+    }
+
+    /**
+     * Picks the next node out of the current available snapshot. Called without holding the lock,
+     * so implementations must only rely on the given array and their own lock-free state.
+     */
+    protected abstract ProviderSchedulingNode findNext(ProviderSchedulingNode[] nodes);
+
+    // Called under the lock whenever the available snapshot or a node weight changes, so derived tables can be rebuilt
+    protected void availableNodesChanged(ProviderSchedulingNode[] nodes) {
+    }
+
+    // Called with a non-empty snapshot. Schedulers with a cheaper way to pick many nodes at once override this.
+    protected void findNextBatch(ProviderSchedulingNode[] nodes, Provider[] out, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            out[i] = findNext(nodes).getProvider();
+        }
+    }
+
+    /**
+     * Whether a pick of the node should stand, given a uniform sample in [0, 1). Key-affine schedulers pass a sample
+     * derived from the key, so a key keeps landing on the same node as that node ramps up.
+     */
+    protected boolean isWarmEnough(ProviderSchedulingNode node, double sample) {
+        if (!node.isWarmingUp())
+            return true;
+
+        return sample < node.getWeightFraction(slowStartPolicy, System.nanoTime());
+    }
+
+    /**
+     * Share of its weight the node gets at this point of its ramp, in (0, 1]. Schedulers that pick the least loaded
+     * node divide its load by this; turning a warming node away would only have them pick it again.
+     */
+    protected double getWarmUpFactor(ProviderSchedulingNode node) {
+        if (!node.isWarmingUp())
+            return 1.0;
+
+        return node.getWeightFraction(slowStartPolicy, System.nanoTime());
+    }
+
+    // True for schedulers that apply slow start through getWarmUpFactor, so their picks are not turned away for it
+    protected boolean isWarmUpScored() {
+        return false;
+    }
+
+    protected boolean hasWarmingNodes() {
+        long endsAt = warmUpEndsAt.get();
+        if (endsAt == NO_WARM_UP)
+            return false;
+        if (System.nanoTime() - endsAt < 0)
+            return true;
+
+        // A rebuild that started another ramp in the meantime makes the CAS fail and keeps it
+        warmUpEndsAt.compareAndSet(endsAt, NO_WARM_UP);
+        return warmUpEndsAt.get() != NO_WARM_UP;
+    }
+
+    protected boolean hasConcurrencyLimits() {
+        return concurrencyLimitPolicy != null;
+    }
+
+    protected boolean isEligible(ProviderSchedulingNode node, double sample) {
+        return !node.isAtConcurrencyLimit() && (isWarmUpScored() || isWarmEnough(node, sample));
+    }
+
+    private ProviderSchedulingNode findNextEligible(ProviderSchedulingNode[] nodes) {
+        ProviderSchedulingNode node = findNext(nodes);
+        if (!hasWarmingNodes() && concurrencyLimitPolicy == null)
+            return node;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 1; node != null && !isEligible(node, random.nextDouble()); attempt++) {
+            if (attempt == SELECTION_ATTEMPTS)
+                return findEligibleNode(nodes);
+            node = findNext(nodes);
+        }
+        return node;
+    }
+
+    /**
+     * For schedulers that keep preferring a node that is warming up or at its limit, e.g. an idle one under least
+     * loaded selection. Prefers a warm node, takes a warming one otherwise, and returns null when every scanned node
+     * is at its limit.
+     */
+    private ProviderSchedulingNode findEligibleNode(ProviderSchedulingNode[] nodes) {
+        int start = ThreadLocalRandom.current().nextInt(nodes.length);
+        int scanCount = Math.min(nodes.length, MAX_ELIGIBLE_SCAN);
+        ProviderSchedulingNode warmingNode = null;
+        for (int i = 0; i < scanCount; i++) {
+            var node = nodes[(start + i) % nodes.length];
+            if (node.isAtConcurrencyLimit())
+                continue;
+            if (!node.isWarmingUp())
+                return node;
+            if (warmingNode == null)
+                warmingNode = node;
+        }
+        return warmingNode;
+    }
+
+    private void resetConcurrencyLimit(ProviderSchedulingNode node) {
+        ConcurrencyLimitPolicy policy = concurrencyLimitPolicy;
+        node.concurrencyLimit = policy == null ? null : policy.createLimit();
+    }
+
+    // Called under the lock, before the snapshot is rebuilt
+    private void setNodeAvailable(ProviderSchedulingNode node, boolean isAvailable) {
+        node.setAvailable(isAvailable);
+
+        // With nothing else serving there is no one to take the load off a cold node
+        if (isAvailable && slowStartPolicy != null && availableNodes.length > 0)
+            node.startWarmUp(System.nanoTime());
+    }
+
+    private void recordLockWait(long lockRequestedAt) {
+        lockWaitTimeInNanos.add(System.nanoTime() - lockRequestedAt);
+        lockAcquisitionCount.increment();
+    }
+
+    private void rebuildAvailableNodes() {
+        synchronized (lock) {
+            var nodes = providers.values().stream()
+                    .filter(providerSchedulingNode -> isNodeAvailable(providerSchedulingNode))
+                    .toArray(ProviderSchedulingNode[]::new);
+            availableNodesChanged(nodes);
+            warmUpEndsAt.set(findWarmUpEnd(nodes));
+            availableNodes = nodes;
+        }
+    }
+
+    private long findWarmUpEnd(ProviderSchedulingNode[] nodes) {
+        SlowStartPolicy policy = slowStartPolicy;
+        if (policy == null)
+            return NO_WARM_UP;
+
+        long now = System.nanoTime();
+        long durationInNanos = TimeUnit.MILLISECONDS.toNanos(policy.getDurationInMs());
+        long endsAt = NO_WARM_UP;
+        for (var node : nodes) {
+            long nodeEndsAt = node.warmUpStartedAt + durationInNanos;
+            if (node.isWarmingUp() && nodeEndsAt - now > 0 && (endsAt == NO_WARM_UP || nodeEndsAt - endsAt > 0))
+                endsAt = nodeEndsAt;
+        }
+        return endsAt;
+    }
+
+    private void addRegisteredNode(Provider provider) {
+        long lockRequestedAt = System.nanoTime();
+        synchronized (lock) {
+            recordLockWait(lockRequestedAt);
+            putRegisteredNode(provider);
+            rebuildAvailableNodes();
+        }
+    }
+
+    private void putRegisteredNode(Provider provider) {
+        var node = new ProviderSchedulingNode(provider, false);
+        Integer initialWeight = initialWeights.remove(provider.getId());
+        if (initialWeight != null)
+            node.setWeight(initialWeight);
+        resetConcurrencyLimit(node);
+        providers.put(provider.getId(), node);
+    }
+
+    private void removeRegisteredNode(Provider provider) {
+        long lockRequestedAt = System.nanoTime();
+        synchronized (lock) {
+            recordLockWait(lockRequestedAt);
+            providers.remove(provider.getId());
+            rebuildAvailableNodes();
+        }
+    }
 }
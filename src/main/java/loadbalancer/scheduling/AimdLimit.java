@@ -0,0 +1,39 @@
+package loadbalancer.scheduling;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Additive increase, multiplicative decrease. The limit grows by one per fast request while the provider is
+ * actually using at least half of it, and shrinks by 10% per request slower than the threshold.
+ */
+class AimdLimit implements ConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdInNanos;
+
+    private final AtomicInteger limit;
+
+    AimdLimit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdInNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdInNanos = latencyThresholdInNanos;
+        this.limit = new AtomicInteger(initialLimit);
+    }
+
+    @Override
+    public int getLimit() {
+        return limit.get();
+    }
+
+    @Override
+    public void onSample(long latencyInNanos, long inFlight) {
+        if (latencyInNanos > latencyThresholdInNanos) {
+            limit.updateAndGet(current -> Math.max(minLimit, (int) (current * BACKOFF_RATIO)));
+        } else if (inFlight * 2 >= limit.get()) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package loadbalancer.scheduling;
+
+/**
+ * Adaptive cap on the requests a single provider may have in flight. Implementations are updated from request
+ * completions on arbitrary threads and must be lock-free.
+ */
+public interface ConcurrencyLimit {
+
+    int getLimit();
+
+    // Called once a request has finished; inFlight counts that request as well
+    void onSample(long latencyInNanos, long inFlight);
+}
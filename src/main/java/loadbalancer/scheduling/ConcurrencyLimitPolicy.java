@@ -0,0 +1,79 @@
+package loadbalancer.scheduling;
+
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimitPolicy {
+
+    public enum Algorithm {
+        AIMD,
+        GRADIENT
+    }
+
+    public static final ConcurrencyLimitPolicy DEFAULT = gradient(20, 1, 1000);
+
+    private final Algorithm algorithm;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdInNanos;
+
+    /**
+     * @param latencyThresholdInMs AIMD only: a request slower than this counts as congestion and backs the limit
+     *                             off; ignored by the gradient algorithm, which learns its own baseline latency
+     */
+    public ConcurrencyLimitPolicy(Algorithm algorithm, int initialLimit, int minLimit, int maxLimit,
+                                  long latencyThresholdInMs) {
+        if (algorithm == null)
+            throw new IllegalArgumentException("Algorithm can not be null");
+        if (minLimit <= 0)
+            throw new IllegalArgumentException("Min limit must be positive");
+        if (maxLimit < minLimit)
+            throw new IllegalArgumentException("Max limit can not be less than min limit");
+        if (initialLimit < minLimit || initialLimit > maxLimit)
+            throw new IllegalArgumentException("Initial limit must be between min and max limit");
+        if (algorithm == Algorithm.AIMD && latencyThresholdInMs <= 0)
+            throw new IllegalArgumentException("Latency threshold must be positive");
+
+        this.algorithm = algorithm;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdInNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdInMs);
+    }
+
+    public static ConcurrencyLimitPolicy aimd(int initialLimit, int minLimit, int maxLimit, long latencyThresholdInMs) {
+        return new ConcurrencyLimitPolicy(Algorithm.AIMD, initialLimit, minLimit, maxLimit, latencyThresholdInMs);
+    }
+
+    public static ConcurrencyLimitPolicy gradient(int initialLimit, int minLimit, int maxLimit) {
+        return new ConcurrencyLimitPolicy(Algorithm.GRADIENT, initialLimit, minLimit, maxLimit, 0);
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public long getLatencyThresholdInMs() {
+        return TimeUnit.NANOSECONDS.toMillis(latencyThresholdInNanos);
+    }
+
+    // One instance per provider
+    public ConcurrencyLimit createLimit() {
+        return switch (algorithm) {
+            case AIMD -> new AimdLimit(initialLimit, minLimit, maxLimit, latencyThresholdInNanos);
+            case GRADIENT -> new GradientLimit(initialLimit, minLimit, maxLimit);
+        };
+    }
+}
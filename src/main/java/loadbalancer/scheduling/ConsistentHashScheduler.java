@@ -0,0 +1,189 @@
+package loadbalancer.scheduling;
+
+import provider.Provider;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Key-affine scheduling with a Maglev lookup table. The table is rebuilt only when membership or availability
+ * changes; a lookup is one hash and one array read. Removing a node only moves the keys that node owned.
+ * <p>
+ * With a bounded load factor, a node is skipped when its outstanding requests would exceed
+ * factor * mean outstanding requests, and the lookup walks the table to the next node under the bound.
+ */
+public class ConsistentHashScheduler extends AbstractScheduler {
+
+    public static final double DEFAULT_BOUNDED_LOAD_FACTOR = 1.25;
+
+    // Changing the table size remaps almost every key, so it starts large enough for hundreds of nodes
+    private static final int[] TABLE_SIZES = {65537, 262147, 1048573};
+
+    private static final int TABLE_SIZE_PER_NODE = 100;
+
+    private static final long OFFSET_SEED = 0x9E3779B97F4A7C15L;
+
+    private static final long SKIP_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    private final double boundedLoadFactor;
+
+    private final LongAdder totalOutstandingRequests = new LongAdder();
+
+    private volatile ProviderSchedulingNode[] lookupTable = new ProviderSchedulingNode[0];
+
+    private volatile int numberOfTableNodes;
+
+    public ConsistentHashScheduler() {
+        this(0);
+    }
+
+    /**
+     * @param boundedLoadFactor multiple of the mean outstanding requests a node may carry, or 0 to disable
+     *                          bounded loads. Must be greater than 1 when enabled.
+     */
+    public ConsistentHashScheduler(double boundedLoadFactor) {
+        if (boundedLoadFactor != 0 && boundedLoadFactor <= 1)
+            throw new IllegalArgumentException("Bounded load factor must be greater than 1");
+
+        this.boundedLoadFactor = boundedLoadFactor;
+    }
+
+    @Override
+    public Provider getNextProvider(String key) {
+        if (key == null)
+            return getNextProvider();
+
+        ProviderSchedulingNode node = findNext(lookupTable, hash(key, 0), true);
+        if (node != null)
+            return node.getProvider();
+        return null;
+    }
+
+    @Override
+    public void requestStarted(Provider provider) {
+        super.requestStarted(provider);
+        totalOutstandingRequests.increment();
+    }
+
+    @Override
+    public void requestCompleted(Provider provider, long latencyInNanos) {
+        super.requestCompleted(provider, latencyInNanos);
+        totalOutstandingRequests.decrement();
+    }
+
+    @Override
+    protected ProviderSchedulingNode findNext(ProviderSchedulingNode[] nodes) {
+        // Requests without a key spread over the table, which is uniform over the nodes
+        return findNext(lookupTable, ThreadLocalRandom.current().nextLong(), false);
+    }
+
+    @Override
+    protected void availableNodesChanged(ProviderSchedulingNode[] nodes) {
+        var sortedNodes = Arrays.copyOf(nodes, nodes.length);
+        // Stable order keeps the table stable for nodes that did not change
+        Arrays.sort(sortedNodes, Comparator.comparing(node -> node.getProvider().getId()));
+
+        lookupTable = buildLookupTable(sortedNodes);
+        numberOfTableNodes = sortedNodes.length;
+    }
+
+    // Keyed lookups handle slow start and concurrency limits here, walking past nodes that can not take the key now
+    private ProviderSchedulingNode findNext(ProviderSchedulingNode[] table, long keyHash, boolean isKeyed) {
+        int tableSize = table.length;
+        if (tableSize == 0)
+            return null;
+
+        int index = (int) Math.floorMod(keyHash, (long) tableSize);
+        boolean isSlowStarting = isKeyed && hasWarmingNodes();
+        boolean isLimited = isKeyed && hasConcurrencyLimits();
+        if (boundedLoadFactor == 0 && !isSlowStarting && !isLimited)
+            return table[index];
+
+        long bound = boundedLoadFactor == 0 ? Long.MAX_VALUE : getLoadBound();
+        // High bits, so the sample does not follow the table index
+        double keySample = (keyHash >>> 11) * 0x1.0p-53;
+        ProviderSchedulingNode node = table[index];
+        for (int step = 0; step < tableSize && (node.getOutstandingRequests() >= bound
+                || (isLimited && node.isAtConcurrencyLimit())
+                || (isSlowStarting && !isWarmEnough(node, keySample))); step++) {
+            if (++index == tableSize)
+                index = 0;
+            node = table[index];
+        }
+
+        if (isLimited && node.isAtConcurrencyLimit())
+            return null;
+        return node;
+    }
+
+    private long getLoadBound() {
+        int nodeCount = Math.max(1, numberOfTableNodes);
+        long total = Math.max(0, totalOutstandingRequests.sum());
+        // Counting the request being placed keeps the bound at least 1 on an idle pool
+        return (long) Math.ceil(boundedLoadFactor * (total + 1) / nodeCount);
+    }
+
+    private ProviderSchedulingNode[] buildLookupTable(ProviderSchedulingNode[] nodes) {
+        int nodeCount = nodes.length;
+        if (nodeCount == 0)
+            return new ProviderSchedulingNode[0];
+
+        int tableSize = selectTableSize(nodeCount);
+        // Each node walks its permutation offset + j * skip (mod table size) one step at a time
+        int[] positions = new int[nodeCount];
+        int[] skips = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            String id = nodes[i].getProvider().getId();
+            positions[i] = (int) Math.floorMod(hash(id, OFFSET_SEED), (long) tableSize);
+            skips[i] = (int) Math.floorMod(hash(id, SKIP_SEED), (long) (tableSize - 1)) + 1;
+        }
+
+        var table = new ProviderSchedulingNode[tableSize];
+        int filled = 0;
+        while (true) {
+            for (int i = 0; i < nodeCount; i++) {
+                int candidate = positions[i];
+                while (table[candidate] != null)
+                    candidate = nextPosition(candidate, skips[i], tableSize);
+
+                table[candidate] = nodes[i];
+                positions[i] = nextPosition(candidate, skips[i], tableSize);
+                if (++filled == tableSize)
+                    return table;
+            }
+        }
+    }
+
+    private static int nextPosition(int position, int skip, int tableSize) {
+        int next = position + skip;
+        return next >= tableSize ? next - tableSize : next;
+    }
+
+    // Never shrinks, so nodes leaving and coming back do not remap keys twice
+    private int selectTableSize(int nodeCount) {
+        long wanted = Math.max((long) nodeCount * TABLE_SIZE_PER_NODE, lookupTable.length);
+        for (int tableSize : TABLE_SIZES) {
+            if (tableSize >= wanted)
+                return tableSize;
+        }
+        return TABLE_SIZES[TABLE_SIZES.length - 1];
+    }
+
+    // FNV-1a over the UTF-16 chars followed by a murmur3 finalizer
+    private static long hash(String value, long seed) {
+        long hash = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
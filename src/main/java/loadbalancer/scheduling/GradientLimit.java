@@ -0,0 +1,92 @@
+package loadbalancer.scheduling;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gradient limit in the style of TCP Vegas and Netflix's Gradient2. A fast moving average of latency is compared
+ * with the provider's uncongested baseline; their ratio, with some tolerance, scales the limit down as requests
+ * start to queue, while a square root headroom lets it probe upwards when latency holds. The baseline follows
+ * lower latency at once but rises slowly, and only while uncongested or at the min limit, so sustained overload
+ * can not pass itself off as the new normal.
+ */
+class GradientLimit implements ConcurrencyLimit {
+
+    private static final double SHORT_ALPHA = 2.0 / (10 + 1);
+    private static final double BASELINE_ALPHA = 2.0 / (600 + 1);
+
+    // Latency may grow this much over the baseline before the limit is reduced
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicLong limitBits;
+    private final AtomicLong shortLatencyBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+    private final AtomicLong baselineLatencyBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limitBits = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+    }
+
+    @Override
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    @Override
+    public void onSample(long latencyInNanos, long inFlight) {
+        double shortLatency = updateAverage(shortLatencyBits, latencyInNanos, SHORT_ALPHA);
+        double baselineLatency = updateBaseline(shortLatency);
+        if (shortLatency <= 0)
+            return;
+
+        while (true) {
+            long currentBits = limitBits.get();
+            double limit = Double.longBitsToDouble(currentBits);
+
+            // A provider using less than half its limit says nothing about whether it could take more
+            if (inFlight * 2 < limit)
+                return;
+
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * baselineLatency / shortLatency));
+            double target = limit * gradient + Math.sqrt(limit);
+            double updated = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+
+            if (limitBits.compareAndSet(currentBits, Double.doubleToRawLongBits(updated)))
+                return;
+        }
+    }
+
+    private double updateBaseline(double shortLatency) {
+        while (true) {
+            long currentBits = baselineLatencyBits.get();
+            double baseline = Double.longBitsToDouble(currentBits);
+
+            double updated;
+            if (baseline == 0 || shortLatency < baseline)
+                updated = shortLatency;
+            else if (shortLatency <= TOLERANCE * baseline || getLimit() <= minLimit)
+                updated = baseline + BASELINE_ALPHA * (shortLatency - baseline);
+            else
+                return baseline;
+
+            if (baselineLatencyBits.compareAndSet(currentBits, Double.doubleToRawLongBits(updated)))
+                return updated;
+        }
+    }
+
+    private static double updateAverage(AtomicLong averageBits, long sample, double alpha) {
+        while (true) {
+            long currentBits = averageBits.get();
+            double average = Double.longBitsToDouble(currentBits);
+            double updated = average == 0 ? sample : average + alpha * (sample - average);
+
+            if (averageBits.compareAndSet(currentBits, Double.doubleToRawLongBits(updated)))
+                return updated;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package loadbalancer.scheduling;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the available node with the fewest in-flight requests. Pools up to the scan window are scanned
+ * exactly; larger pools scan a window of consecutive nodes starting at a random offset, which keeps the
+ * lookup O(window) and lock-free while still steering traffic away from busy nodes.
+ */
+public class LeastOutstandingScheduler extends AbstractScheduler {
+
+    private static final int SCAN_WINDOW = 16;
+
+    @Override
+    protected ProviderSchedulingNode findNext(ProviderSchedulingNode[] nodes) {
+        var numberOfNodes = nodes.length;
+        if (numberOfNodes == 0)
+            return null;
+
+        // Random start also breaks ties between equally loaded nodes
+        int index = ThreadLocalRandom.current().nextInt(numberOfNodes);
+        int scanCount = Math.min(numberOfNodes, SCAN_WINDOW);
+        if (hasWarmingNodes())
+            return findNextSlowStarting(nodes, index, scanCount);
+
+        ProviderSchedulingNode best = null;
+        long bestOutstanding = Long.MAX_VALUE;
+        for (int i = 0; i < scanCount; i++) {
+            ProviderSchedulingNode node = nodes[index];
+            long outstanding = node.getOutstandingRequests();
+            if (outstanding < bestOutstanding) {
+                best = node;
+                bestOutstanding = outstanding;
+                if (outstanding == 0)
+                    break;
+            }
+
+            if (++index == numberOfNodes)
+                index = 0;
+        }
+
+        return best;
+    }
+
+    @Override
+    protected boolean isWarmUpScored() {
+        return true;
+    }
+
+    /**
+     * Divides each node's load by its warm-up factor. The uniform jitter in place of the usual +1 breaks ties between
+     * idle nodes at random, which gives a warming node exactly its factor of an idle node's share.
+     */
+    private ProviderSchedulingNode findNextSlowStarting(ProviderSchedulingNode[] nodes, int index, int scanCount) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ProviderSchedulingNode best = null;
+        double bestLoad = Double.MAX_VALUE;
+        for (int i = 0; i < scanCount; i++) {
+            ProviderSchedulingNode node = nodes[index];
+            double load = (node.getOutstandingRequests() + random.nextDouble()) / getWarmUpFactor(node);
+            if (load < bestLoad) {
+                best = node;
+                bestLoad = load;
+            }
+
+            if (++index == nodes.length)
+                index = 0;
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,53 @@
+package loadbalancer.scheduling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free peak-sensitive moving average of request latency. A sample above the current cost replaces it
+ * immediately; lower samples are blended in with a weight that grows with the time since the last sample, so
+ * the cost also decays back towards fast samples when a provider recovers.
+ */
+class PeakEwma {
+
+    private final double decayTimeInNanos;
+
+    private final AtomicLong costBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+
+    private volatile long lastUpdateInNanos = System.nanoTime();
+
+    PeakEwma(long decayTimeInMs) {
+        if (decayTimeInMs <= 0)
+            throw new IllegalArgumentException("Decay time must be positive");
+
+        this.decayTimeInNanos = TimeUnit.MILLISECONDS.toNanos(decayTimeInMs);
+    }
+
+    void observe(long latencyInNanos) {
+        long now = System.nanoTime();
+        double weight = decayWeight(now);
+        lastUpdateInNanos = now;
+
+        while (true) {
+            long currentBits = costBits.get();
+            double cost = Double.longBitsToDouble(currentBits);
+            double updated = latencyInNanos > cost
+                    ? latencyInNanos
+                    : cost * weight + latencyInNanos * (1.0 - weight);
+
+            if (costBits.compareAndSet(currentBits, Double.doubleToRawLongBits(updated)))
+                return;
+        }
+    }
+
+    // Cost as seen now; an idle node's cost decays so that it is tried again
+    double getCost() {
+        double cost = Double.longBitsToDouble(costBits.get());
+        return cost * decayWeight(System.nanoTime());
+    }
+
+    private double decayWeight(long now) {
+        long elapsed = Math.max(0, now - lastUpdateInNanos);
+        return Math.exp(-elapsed / decayTimeInNanos);
+    }
+}
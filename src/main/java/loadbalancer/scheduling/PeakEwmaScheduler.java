@@ -0,0 +1,48 @@
+package loadbalancer.scheduling;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices: samples two distinct available nodes and picks the one with the lower load score,
+ * peak-EWMA latency multiplied by outstanding requests plus one. Slow providers shed traffic on their own
+ * without being excluded.
+ */
+public class PeakEwmaScheduler extends AbstractScheduler {
+
+    @Override
+    protected ProviderSchedulingNode findNext(ProviderSchedulingNode[] nodes) {
+        var numberOfNodes = nodes.length;
+        if (numberOfNodes == 0)
+            return null;
+        if (numberOfNodes == 1)
+            return nodes[0];
+
+        var random = ThreadLocalRandom.current();
+        int first = random.nextInt(numberOfNodes);
+        int second = random.nextInt(numberOfNodes - 1);
+        if (second >= first)
+            second++;
+
+        if (hasWarmingNodes()) {
+            return getSlowStartScore(nodes[first], random) <= getSlowStartScore(nodes[second], random)
+                    ? nodes[first] : nodes[second];
+        }
+        return getLoadScore(nodes[first]) <= getLoadScore(nodes[second]) ? nodes[first] : nodes[second];
+    }
+
+    @Override
+    protected boolean isWarmUpScored() {
+        return true;
+    }
+
+    private double getLoadScore(ProviderSchedulingNode node) {
+        // Floor the cost so that nodes without samples yet are still ordered by outstanding requests
+        return Math.max(node.getLatencyCost(), 1.0) * (node.getOutstandingRequests() + 1);
+    }
+
+    // A warming node's score is divided by its warm-up factor; the jitter in place of +1 breaks ties at random
+    private double getSlowStartScore(ProviderSchedulingNode node, ThreadLocalRandom random) {
+        double score = Math.max(node.getLatencyCost(), 1.0) * (node.getOutstandingRequests() + random.nextDouble());
+        return score / getWarmUpFactor(node);
+    }
+}
@@ -1,6 +1,22 @@
 package loadbalancer.scheduling;
 
+import provider.Provider;
+
 public interface Scheduler {
 
     String getNext();
+
+    Provider getNextProvider();
+
+    Provider getNextProvider(String key);
+
+    int getNextProviders(Provider[] out, int offset, int length);
+
+    void updateWeight(Provider provider, int weight);
+
+    int getWeight(Provider provider);
+
+    void requestStarted(Provider provider);
+
+    void requestCompleted(Provider provider, long latencyInNanos);
 }
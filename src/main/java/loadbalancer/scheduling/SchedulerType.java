@@ -2,5 +2,11 @@ package loadbalancer.scheduling;
 
 public enum SchedulerType {
     RANDOM,
-    ROUND_ROBIN
+    ROUND_ROBIN,
+    WEIGHTED_ROUND_ROBIN,
+    LEAST_OUTSTANDING,
+    PEAK_EWMA,
+    CONSISTENT_HASH,
+    CONSISTENT_HASH_BOUNDED_LOAD,
+    WEIGHTED_RANDOM
 }
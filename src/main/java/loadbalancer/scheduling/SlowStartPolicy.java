@@ -0,0 +1,53 @@
+package loadbalancer.scheduling;
+
+import java.util.concurrent.TimeUnit;
+
+public class SlowStartPolicy {
+
+    public static final SlowStartPolicy DEFAULT = new SlowStartPolicy(30 * 1000, 0.1, 1.0);
+
+    private final long durationInNanos;
+    private final double minWeightFraction;
+    private final double aggression;
+
+    /**
+     * @param durationInMs      time for a provider to go from minWeightFraction to its full weight
+     * @param minWeightFraction share of its weight a provider gets right after becoming available, in (0, 1]
+     * @param aggression        shape of the ramp: fraction = (elapsed / duration) ^ (1 / aggression), so 1 is
+     *                          linear and larger values hand out traffic sooner
+     */
+    public SlowStartPolicy(long durationInMs, double minWeightFraction, double aggression) {
+        if (durationInMs <= 0)
+            throw new IllegalArgumentException("Slow start duration must be positive");
+        if (!(minWeightFraction > 0 && minWeightFraction <= 1))
+            throw new IllegalArgumentException("Min weight fraction must be in (0, 1]");
+        if (!(aggression > 0))
+            throw new IllegalArgumentException("Aggression must be positive");
+
+        this.durationInNanos = TimeUnit.MILLISECONDS.toNanos(durationInMs);
+        this.minWeightFraction = minWeightFraction;
+        this.aggression = aggression;
+    }
+
+    public long getDurationInMs() {
+        return TimeUnit.NANOSECONDS.toMillis(durationInNanos);
+    }
+
+    public double getMinWeightFraction() {
+        return minWeightFraction;
+    }
+
+    public double getAggression() {
+        return aggression;
+    }
+
+    // 1 once the ramp is over
+    public double getWeightFraction(long elapsedInNanos) {
+        if (elapsedInNanos >= durationInNanos)
+            return 1.0;
+
+        double progress = Math.max(0, elapsedInNanos) / (double) durationInNanos;
+        double fraction = aggression == 1.0 ? progress : Math.pow(progress, 1.0 / aggression);
+        return Math.max(minWeightFraction, fraction);
+    }
+}
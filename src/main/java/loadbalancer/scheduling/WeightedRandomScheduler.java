@@ -0,0 +1,96 @@
+package loadbalancer.scheduling;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted random selection with Vose's alias method. The alias table is rebuilt whenever availability or
+ * weights change and published as one immutable object, so a pick is one random int, one random double and
+ * no locking.
+ */
+public class WeightedRandomScheduler extends AbstractScheduler {
+
+    private class AliasTable {
+
+        private final ProviderSchedulingNode[] nodes;
+        private final double[] probabilities;
+        private final int[] aliases;
+
+        AliasTable(ProviderSchedulingNode[] nodes, double[] probabilities, int[] aliases) {
+            this.nodes = nodes;
+            this.probabilities = probabilities;
+            this.aliases = aliases;
+        }
+    }
+
+    private volatile AliasTable aliasTable = new AliasTable(new ProviderSchedulingNode[0], new double[0], new int[0]);
+
+    @Override
+    protected ProviderSchedulingNode findNext(ProviderSchedulingNode[] nodes) {
+        AliasTable table = aliasTable;
+        var numberOfNodes = table.nodes.length;
+        if (numberOfNodes == 0)
+            return null;
+
+        var random = ThreadLocalRandom.current();
+        int column = random.nextInt(numberOfNodes);
+        return random.nextDouble() < table.probabilities[column]
+                ? table.nodes[column]
+                : table.nodes[table.aliases[column]];
+    }
+
+    @Override
+    protected void availableNodesChanged(ProviderSchedulingNode[] nodes) {
+        aliasTable = buildAliasTable(nodes);
+    }
+
+    private AliasTable buildAliasTable(ProviderSchedulingNode[] nodes) {
+        int numberOfNodes = nodes.length;
+        double[] probabilities = new double[numberOfNodes];
+        int[] aliases = new int[numberOfNodes];
+        if (numberOfNodes == 0)
+            return new AliasTable(nodes, probabilities, aliases);
+
+        long totalWeight = 0;
+        for (var node : nodes) {
+            totalWeight += node.getWeight();
+        }
+
+        // Scaled so that the mean column holds exactly 1.0
+        double[] scaled = new double[numberOfNodes];
+        int[] small = new int[numberOfNodes];
+        int[] large = new int[numberOfNodes];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < numberOfNodes; i++) {
+            scaled[i] = (double) nodes[i].getWeight() * numberOfNodes / totalWeight;
+            if (scaled[i] < 1.0)
+                small[smallCount++] = i;
+            else
+                large[largeCount++] = i;
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0)
+                small[smallCount++] = more;
+            else
+                large[largeCount++] = more;
+        }
+
+        // Whatever is left is 1.0 up to rounding error
+        while (largeCount > 0) {
+            probabilities[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            probabilities[small[--smallCount]] = 1.0;
+        }
+
+        return new AliasTable(nodes, probabilities, aliases);
+    }
+}
@@ -0,0 +1,133 @@
+package loadbalancer.scheduling;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Smooth weighted round robin. Instead of running the nginx selection loop on every request, the whole
+ * interleaved sequence is precomputed whenever availability or weights change, and requests walk it with an
+ * atomic cursor.
+ */
+public class WeightedRoundRobinScheduler extends AbstractScheduler {
+
+    private static final int MAX_SEQUENCE_LENGTH = 1 << 16;
+
+    // Above this many steps * nodes the O(n) nginx step gets too slow, and an O(log n) deadline queue is used instead
+    private static final long MAX_SMOOTH_BUILD_COST = 1 << 22;
+
+    private final AtomicLong cursor = new AtomicLong();
+
+    private volatile ProviderSchedulingNode[] sequence;
+
+    public WeightedRoundRobinScheduler() {
+        sequence = new ProviderSchedulingNode[0];
+    }
+
+    @Override
+    protected ProviderSchedulingNode findNext(ProviderSchedulingNode[] nodes) {
+        ProviderSchedulingNode[] currentSequence = sequence;
+        var sequenceLength = currentSequence.length;
+        if (sequenceLength == 0)
+            return null;
+
+        int index = (int) Math.floorMod(cursor.getAndIncrement(), (long) sequenceLength);
+        return currentSequence[index];
+    }
+
+    @Override
+    protected void availableNodesChanged(ProviderSchedulingNode[] nodes) {
+        sequence = buildSequence(nodes);
+    }
+
+    private ProviderSchedulingNode[] buildSequence(ProviderSchedulingNode[] nodes) {
+        int[] weights = normalizeWeights(nodes);
+
+        long sequenceLength = 0;
+        for (int weight : weights) {
+            sequenceLength += weight;
+        }
+
+        if (sequenceLength * nodes.length <= MAX_SMOOTH_BUILD_COST)
+            return buildSmoothSequence(nodes, weights, (int) sequenceLength);
+
+        return buildDeadlineSequence(nodes, weights, (int) sequenceLength);
+    }
+
+    private ProviderSchedulingNode[] buildSmoothSequence(ProviderSchedulingNode[] nodes, int[] weights, int sequenceLength) {
+        var result = new ProviderSchedulingNode[sequenceLength];
+        long[] currentWeights = new long[nodes.length];
+
+        for (int step = 0; step < sequenceLength; step++) {
+            int best = -1;
+            for (int i = 0; i < nodes.length; i++) {
+                currentWeights[i] += weights[i];
+                if (best < 0 || currentWeights[i] > currentWeights[best]) {
+                    best = i;
+                }
+            }
+
+            currentWeights[best] -= sequenceLength;
+            result[step] = nodes[best];
+        }
+
+        return result;
+    }
+
+    private ProviderSchedulingNode[] buildDeadlineSequence(ProviderSchedulingNode[] nodes, int[] weights, int sequenceLength) {
+        var result = new ProviderSchedulingNode[sequenceLength];
+        var queue = new PriorityQueue<double[]>(nodes.length,
+                (left, right) -> left[0] != right[0] ? Double.compare(left[0], right[0]) : Double.compare(left[1], right[1]));
+
+        // Entry: {next deadline, node index}. Each node is due every 1 / weight, offset by half a period.
+        for (int i = 0; i < nodes.length; i++) {
+            queue.add(new double[]{0.5 / weights[i], i});
+        }
+
+        for (int step = 0; step < sequenceLength; step++) {
+            double[] entry = queue.poll();
+            int index = (int) entry[1];
+            result[step] = nodes[index];
+            entry[0] += 1.0 / weights[index];
+            queue.add(entry);
+        }
+
+        return result;
+    }
+
+    private int[] normalizeWeights(ProviderSchedulingNode[] nodes) {
+        int[] weights = new int[nodes.length];
+        int divisor = 0;
+        long total = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            weights[i] = nodes[i].getWeight();
+            divisor = gcd(divisor, weights[i]);
+            total += weights[i];
+        }
+
+        if (divisor > 1) {
+            total /= divisor;
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= divisor;
+            }
+        }
+
+        long maxLength = Math.max(MAX_SEQUENCE_LENGTH, nodes.length);
+        if (total > maxLength) {
+            // Keep the sequence bounded; every node still gets at least one slot
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = (int) Math.max(1, weights[i] * maxLength / total);
+            }
+        }
+
+        return weights;
+    }
+
+    private int gcd(int left, int right) {
+        while (right != 0) {
+            int remainder = left % right;
+            left = right;
+            right = remainder;
+        }
+        return left;
+    }
+}
@@ -0,0 +1,31 @@
+package loadbalancer.snapshot;
+
+import loadbalancer.provideravailability.TraceableState;
+
+public class ProviderSnapshot {
+
+    private final TraceableState traceableState;
+    private final int weight;
+
+    public ProviderSnapshot(TraceableState traceableState, int weight) {
+        if (traceableState == null)
+            throw new IllegalArgumentException("Traceable state can not be null");
+        if (weight <= 0)
+            throw new IllegalArgumentException("Weight must be positive");
+
+        this.traceableState = traceableState;
+        this.weight = weight;
+    }
+
+    public String getId() {
+        return traceableState.getId();
+    }
+
+    public TraceableState getTraceableState() {
+        return traceableState;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
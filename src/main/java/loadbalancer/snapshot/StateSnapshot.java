@@ -0,0 +1,26 @@
+package loadbalancer.snapshot;
+
+import java.util.List;
+
+public class StateSnapshot {
+
+    private final long createdAtMillis;
+    private final List<ProviderSnapshot> providers;
+
+    // Wall clock time, since the snapshot has to be dated across restarts
+    public StateSnapshot(long createdAtMillis, List<ProviderSnapshot> providers) {
+        if (providers == null)
+            throw new IllegalArgumentException("Provider snapshots can not be null");
+
+        this.createdAtMillis = createdAtMillis;
+        this.providers = List.copyOf(providers);
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public List<ProviderSnapshot> getProviders() {
+        return providers;
+    }
+}
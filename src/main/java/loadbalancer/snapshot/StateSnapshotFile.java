@@ -0,0 +1,342 @@
+package loadbalancer.snapshot;
+
+import loadbalancer.provideravailability.TraceableState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot file written through a memory-mapped FileChannel. The file holds two slots and every checkpoint goes to
+ * the slot not holding the latest one, which is only overwritten once the new one has been forced to disk. Each slot
+ * carries a sequence number and a CRC, so a checkpoint torn by a crash is ignored and the previous one is read.
+ *
+ * <p>The file is mapped once. A mapped file can not be truncated, replaced or deleted on every platform, so a
+ * snapshot that outgrows its slots goes to a new, larger file next to it, named after the path with a generation
+ * suffix, e.g. state.snapshot.7. Reads take whichever of these files holds the latest intact checkpoint, and the
+ * older ones are deleted once that succeeds.
+ */
+public class StateSnapshotFile implements Closeable {
+
+    // "LBS1"
+    private static final int MAGIC = 0x4C425331;
+    private static final int VERSION = 1;
+
+    // Magic, version and slot size, padded
+    private static final int FILE_HEADER_SIZE = 16;
+
+    // Sequence, creation time, payload length and CRC
+    private static final int SLOT_HEADER_SIZE = 24;
+    private static final int CHECKSUMMED_HEADER_SIZE = 20;
+
+    private static final int MIN_SLOT_SIZE = 4 * 1024;
+
+    private static final int ALIVE_FLAG = 1;
+    private static final int EXCLUDED_FLAG = 1 << 1;
+
+    private final Path path;
+
+    private MappedByteBuffer mapped;
+    private int slotSize;
+    private long sequence;
+
+    private ByteBuffer payload = ByteBuffer.allocate(MIN_SLOT_SIZE);
+
+    public StateSnapshotFile(Path path) {
+        if (path == null)
+            throw new IllegalArgumentException("Snapshot path can not be null");
+
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Null when there is no file or no intact checkpoint in it
+    public synchronized StateSnapshot read() throws IOException {
+        Path latestPath = findLatestFile();
+        if (latestPath == null)
+            return null;
+
+        try (FileChannel channel = FileChannel.open(latestPath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = mapIfValid(channel, FileChannel.MapMode.READ_ONLY);
+            if (buffer == null)
+                return null;
+
+            int latestSlot = findLatestSlot(buffer, getSlotSize(buffer));
+            return latestSlot < 0 ? null : decode(buffer, slotOffset(latestSlot, getSlotSize(buffer)));
+        }
+    }
+
+    public synchronized void write(StateSnapshot snapshot) throws IOException {
+        encode(snapshot);
+        int requiredSlotSize = SLOT_HEADER_SIZE + payload.remaining();
+
+        if (mapped == null)
+            open();
+
+        if (mapped == null || slotSize < requiredSlotSize) {
+            create(Math.max(MIN_SLOT_SIZE, Integer.highestOneBit(requiredSlotSize - 1) << 1), snapshot);
+            return;
+        }
+
+        writeSlot(mapped, slotSize, (int) ((sequence + 1) & 1), sequence + 1, snapshot.getCreatedAtMillis());
+        sequence++;
+    }
+
+    // The mapping itself is released by the garbage collector; the JDK has no supported way to unmap it
+    @Override
+    public synchronized void close() {
+        if (mapped != null)
+            mapped.force();
+        mapped = null;
+    }
+
+    private void open() throws IOException {
+        Path latestPath = findLatestFile();
+        if (latestPath == null)
+            return;
+
+        try (FileChannel channel = FileChannel.open(latestPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = mapIfValid(channel, FileChannel.MapMode.READ_WRITE);
+            if (buffer == null)
+                return;
+
+            int existingSlotSize = getSlotSize(buffer);
+            int latestSlot = findLatestSlot(buffer, existingSlotSize);
+            mapped = buffer;
+            slotSize = existingSlotSize;
+            sequence = latestSlot < 0 ? 0 : buffer.getLong(slotOffset(latestSlot, existingSlotSize));
+        }
+        deleteOtherFiles(latestPath);
+    }
+
+    /**
+     * Writes the checkpoint to a new file under a name never used before, so no file that may still be mapped is
+     * truncated or replaced. Until its checkpoint is forced the new file holds nothing intact and reads ignore it.
+     */
+    private void create(int newSlotSize, StateSnapshot snapshot) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+
+        Path newPath = path;
+        for (long generation = sequence + 1; Files.exists(newPath); generation++)
+            newPath = path.resolveSibling(path.getFileName() + "." + generation);
+
+        long fileSize = FILE_HEADER_SIZE + 2L * newSlotSize;
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(newPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, newSlotSize);
+            buffer.force(0, FILE_HEADER_SIZE);
+            writeSlot(buffer, newSlotSize, (int) ((sequence + 1) & 1), sequence + 1, snapshot.getCreatedAtMillis());
+        }
+
+        mapped = buffer;
+        slotSize = newSlotSize;
+        sequence++;
+        deleteOtherFiles(newPath);
+    }
+
+    // The base path and its generations; null when none of them holds an intact checkpoint
+    private Path findLatestFile() throws IOException {
+        Path latestPath = null;
+        long latestSequence = 0;
+        for (Path candidate : listFiles()) {
+            try (FileChannel channel = FileChannel.open(candidate, StandardOpenOption.READ)) {
+                ByteBuffer buffer = mapIfValid(channel, FileChannel.MapMode.READ_ONLY);
+                if (buffer == null)
+                    continue;
+
+                int candidateSlotSize = getSlotSize(buffer);
+                int latestSlot = findLatestSlot(buffer, candidateSlotSize);
+                long candidateSequence = latestSlot < 0 ? 0 : buffer.getLong(slotOffset(latestSlot, candidateSlotSize));
+                if (candidateSequence > latestSequence) {
+                    latestPath = candidate;
+                    latestSequence = candidateSequence;
+                }
+            }
+        }
+        return latestPath;
+    }
+
+    private List<Path> listFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.exists(path))
+            files.add(path);
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent == null || !Files.isDirectory(parent))
+            return files;
+
+        String prefix = path.getFileName() + ".";
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(parent, prefix + "*")) {
+            for (Path sibling : siblings) {
+                String suffix = sibling.getFileName().toString().substring(prefix.length());
+                // Resolved against the path as given, so it compares equal to the names create() builds
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit))
+                    files.add(path.resolveSibling(sibling.getFileName()));
+            }
+        }
+        return files;
+    }
+
+    // Best effort; a file this process still has mapped can not be deleted everywhere and is retried next time
+    private void deleteOtherFiles(Path keptPath) {
+        List<Path> files;
+        try {
+            files = listFiles();
+        } catch (IOException e) {
+            return;
+        }
+
+        for (Path file : files) {
+            try {
+                if (!file.equals(keptPath))
+                    Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // Left for the next growth or restart
+            }
+        }
+    }
+
+    // The header is written after the payload, and both are forced before the other slot may be reused
+    private void writeSlot(MappedByteBuffer buffer, int currentSlotSize, int slot, long slotSequence,
+                           long createdAtMillis) {
+        int offset = slotOffset(slot, currentSlotSize);
+        int length = payload.remaining();
+        buffer.put(offset + SLOT_HEADER_SIZE, payload, payload.position(), length);
+
+        buffer.putLong(offset, slotSequence);
+        buffer.putLong(offset + 8, createdAtMillis);
+        buffer.putInt(offset + 16, length);
+        buffer.putInt(offset + 20, checksum(buffer, offset, length));
+        buffer.force(offset, SLOT_HEADER_SIZE + length);
+    }
+
+    private void encode(StateSnapshot snapshot) {
+        List<ProviderSnapshot> providers = snapshot.getProviders();
+        int size = 4;
+        List<byte[]> ids = new ArrayList<>(providers.size());
+        for (ProviderSnapshot provider : providers) {
+            byte[] id = provider.getId().getBytes(StandardCharsets.UTF_8);
+            if (id.length > Short.MAX_VALUE)
+                throw new IllegalArgumentException("Provider id is too long to snapshot: " + provider.getId());
+            ids.add(id);
+            size += 2 + id.length + 1 + 4 + 4;
+        }
+
+        if (payload.capacity() < size)
+            payload = ByteBuffer.allocate(Integer.highestOneBit(size - 1) << 1);
+
+        payload.clear();
+        payload.putInt(providers.size());
+        for (int i = 0; i < providers.size(); i++) {
+            ProviderSnapshot provider = providers.get(i);
+            TraceableState state = provider.getTraceableState();
+            payload.putShort((short) ids.get(i).length);
+            payload.put(ids.get(i));
+            payload.put((byte) ((state.isAlive() ? ALIVE_FLAG : 0) | (state.isExcluded() ? EXCLUDED_FLAG : 0)));
+            payload.putInt(state.getReInclusionCount());
+            payload.putInt(provider.getWeight());
+        }
+        payload.flip();
+    }
+
+    private StateSnapshot decode(ByteBuffer buffer, int offset) {
+        long createdAtMillis = buffer.getLong(offset + 8);
+        int length = buffer.getInt(offset + 16);
+        ByteBuffer slot = buffer.slice(offset + SLOT_HEADER_SIZE, length);
+
+        int count = slot.getInt();
+        List<ProviderSnapshot> providers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] id = new byte[slot.getShort()];
+            slot.get(id);
+            int flags = slot.get();
+            int reInclusionCount = slot.getInt();
+            int weight = slot.getInt();
+
+            TraceableState state = new TraceableState(new String(id, StandardCharsets.UTF_8),
+                    (flags & ALIVE_FLAG) != 0, (flags & EXCLUDED_FLAG) != 0, reInclusionCount);
+            providers.add(new ProviderSnapshot(state, weight));
+        }
+        return new StateSnapshot(createdAtMillis, providers);
+    }
+
+    private MappedByteBuffer mapIfValid(FileChannel channel, FileChannel.MapMode mode) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < FILE_HEADER_SIZE)
+            return null;
+
+        MappedByteBuffer buffer = channel.map(mode, 0, fileSize);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            return null;
+
+        int existingSlotSize = getSlotSize(buffer);
+        if (existingSlotSize < SLOT_HEADER_SIZE || fileSize < FILE_HEADER_SIZE + 2L * existingSlotSize)
+            return null;
+        return buffer;
+    }
+
+    // -1 when neither slot holds an intact checkpoint
+    private int findLatestSlot(ByteBuffer buffer, int currentSlotSize) {
+        int latestSlot = -1;
+        long latestSequence = 0;
+        for (int slot = 0; slot < 2; slot++) {
+            int offset = slotOffset(slot, currentSlotSize);
+            long slotSequence = buffer.getLong(offset);
+            if (slotSequence > latestSequence && isIntact(buffer, offset, currentSlotSize)) {
+                latestSlot = slot;
+                latestSequence = slotSequence;
+            }
+        }
+        return latestSlot;
+    }
+
+    private boolean isIntact(ByteBuffer buffer, int offset, int currentSlotSize) {
+        int length = buffer.getInt(offset + 16);
+        if (length < 4 || length > currentSlotSize - SLOT_HEADER_SIZE)
+            return false;
+        if (buffer.getInt(offset + 20) != checksum(buffer, offset, length))
+            return false;
+
+        try {
+            decode(buffer, offset);
+            return true;
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            return false;
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, CHECKSUMMED_HEADER_SIZE));
+        crc.update(buffer.slice(offset + SLOT_HEADER_SIZE, length));
+        return (int) crc.getValue();
+    }
+
+    private static int getSlotSize(ByteBuffer buffer) {
+        return buffer.getInt(8);
+    }
+
+    private static int slotOffset(int slot, int currentSlotSize) {
+        return FILE_HEADER_SIZE + slot * currentSlotSize;
+    }
+}
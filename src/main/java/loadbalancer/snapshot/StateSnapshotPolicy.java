@@ -0,0 +1,47 @@
+package loadbalancer.snapshot;
+
+import java.nio.file.Path;
+
+public class StateSnapshotPolicy {
+
+    public static final long DEFAULT_CHECKPOINT_INTERVAL_IN_MS = 5 * 1000;
+
+    public static final long DEFAULT_MAX_HEALTH_AGE_IN_MS = 60 * 1000;
+
+    private final Path path;
+    private final long checkpointIntervalInMs;
+    private final long maxHealthAgeInMs;
+
+    /**
+     * @param maxHealthAgeInMs age after which the last-known health in a snapshot is no longer trusted, so restored
+     *                         providers wait for their heartbeats again; exclusions and weights are restored regardless
+     */
+    public StateSnapshotPolicy(Path path, long checkpointIntervalInMs, long maxHealthAgeInMs) {
+        if (path == null)
+            throw new IllegalArgumentException("Snapshot path can not be null");
+        if (checkpointIntervalInMs <= 0)
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        if (maxHealthAgeInMs < 0)
+            throw new IllegalArgumentException("Max health age can not be negative");
+
+        this.path = path;
+        this.checkpointIntervalInMs = checkpointIntervalInMs;
+        this.maxHealthAgeInMs = maxHealthAgeInMs;
+    }
+
+    public static StateSnapshotPolicy at(Path path) {
+        return new StateSnapshotPolicy(path, DEFAULT_CHECKPOINT_INTERVAL_IN_MS, DEFAULT_MAX_HEALTH_AGE_IN_MS);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getCheckpointIntervalInMs() {
+        return checkpointIntervalInMs;
+    }
+
+    public long getMaxHealthAgeInMs() {
+        return maxHealthAgeInMs;
+    }
+}
@@ -0,0 +1,177 @@
+package loadbalancer.snapshot;
+
+import loadbalancer.concurrency.HashedTimingWheel;
+import loadbalancer.eventlog.EventLevel;
+import loadbalancer.eventlog.EventLogs;
+import loadbalancer.provideravailability.AvailabilityTracer;
+import loadbalancer.provideravailability.TraceableState;
+import loadbalancer.providerregistry.ProviderRegistry;
+import loadbalancer.providerregistry.ProviderRegistryObserver;
+import loadbalancer.scheduling.Scheduler;
+import provider.Provider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Periodically checkpoints the registered providers with their weights, exclusions, re-inclusion countdowns and
+ * last-known health, and restores them after a restart. Providers can not be recreated from a file, so a provider's
+ * saved state is applied when a provider with the same id registers again; restored health is served right away
+ * and the provider's heartbeats confirm or correct it from then on.
+ *
+ * <p>Restoring therefore needs provider ids that survive a restart. ProviderImpl draws a random UUID per instance,
+ * so its providers are never matched; override getId() and getTraceableId() with a stable id, e.g. the provider's
+ * address. Saved providers that never register again are left out of the next checkpoint.
+ */
+public class StateSnapshotter implements ProviderRegistryObserver {
+
+    private static final String LOG_SOURCE = "snapshot";
+
+    private final String observerId = UUID.randomUUID().toString();
+
+    private final StateSnapshotPolicy policy;
+    private final ProviderRegistry providerRegistry;
+    private final AvailabilityTracer availabilityTracer;
+    private final Scheduler scheduler;
+
+    private final StateSnapshotFile file;
+    private final HashedTimingWheel timingWheel;
+
+    // Saved providers that have not registered again yet
+    private final Map<String, ProviderSnapshot> pendingRestores = new ConcurrentHashMap<>();
+    private final boolean isHealthTrusted;
+
+    private volatile HashedTimingWheel.Timeout checkpointTimeout;
+
+    public StateSnapshotter(StateSnapshotPolicy policy, ProviderRegistry providerRegistry,
+                            AvailabilityTracer availabilityTracer, Scheduler scheduler, HashedTimingWheel timingWheel) {
+        if (policy == null)
+            throw new IllegalArgumentException("State snapshot policy can not be null");
+
+        if (providerRegistry == null)
+            throw new IllegalArgumentException("ProviderRegistry can not be null");
+
+        if (availabilityTracer == null)
+            throw new IllegalArgumentException("AvailabilityTracer can not be null");
+
+        if (scheduler == null)
+            throw new IllegalArgumentException("Scheduler can not be null");
+
+        if (timingWheel == null)
+            throw new IllegalArgumentException("HashedTimingWheel can not be null");
+
+        this.policy = policy;
+        this.providerRegistry = providerRegistry;
+        this.availabilityTracer = availabilityTracer;
+        this.scheduler = scheduler;
+        this.file = new StateSnapshotFile(policy.getPath());
+        this.timingWheel = timingWheel;
+
+        StateSnapshot snapshot = load();
+        this.isHealthTrusted = snapshot != null
+                && System.currentTimeMillis() - snapshot.getCreatedAtMillis() <= policy.getMaxHealthAgeInMs();
+        if (snapshot != null)
+            snapshot.getProviders().forEach(provider -> pendingRestores.put(provider.getId(), provider));
+    }
+
+    public StateSnapshotPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Restores providers that are already registered and starts the periodic checkpoints. Their heartbeats have been
+     * running in this process already, so only exclusions and weights are taken from the snapshot for them.
+     */
+    public void start() {
+        for (Provider provider : providerRegistry.getProviders())
+            restore(provider, false);
+
+        checkpointTimeout = timingWheel.scheduleAtFixedRate(this::checkpointQuietly,
+                policy.getCheckpointIntervalInMs(), policy.getCheckpointIntervalInMs());
+    }
+
+    // Takes a last checkpoint, so a graceful shutdown restarts from the latest state
+    public void stop() {
+        HashedTimingWheel.Timeout timeout = checkpointTimeout;
+        if (timeout != null)
+            timeout.cancel();
+
+        checkpointQuietly();
+        file.close();
+    }
+
+    public synchronized void checkpoint() throws IOException {
+        List<ProviderSnapshot> providers = new ArrayList<>();
+        for (Provider provider : providerRegistry.getProviders()) {
+            TraceableState state = availabilityTracer.getTraceableState(provider);
+            try {
+                if (state != null)
+                    providers.add(new ProviderSnapshot(state, scheduler.getWeight(provider)));
+            } catch (IllegalArgumentException e) {
+                // Unregistered since the registry was read; the next checkpoint leaves it out anyway
+            }
+        }
+
+        file.write(new StateSnapshot(System.currentTimeMillis(), providers));
+    }
+
+    public int getPendingRestoreCount() {
+        return pendingRestores.size();
+    }
+
+    @Override
+    public String getObserverId() {
+        return observerId;
+    }
+
+    @Override
+    public void providerRegistered(Provider provider) {
+        restore(provider, isHealthTrusted);
+    }
+
+    // The next checkpoint simply leaves it out
+    @Override
+    public void providerUnregistered(Provider provider) {
+    }
+
+    private StateSnapshot load() {
+        long startTime = System.nanoTime();
+        try {
+            StateSnapshot snapshot = file.read();
+            if (snapshot != null) {
+                EventLogs.get().log(EventLevel.INFO, LOG_SOURCE, "Loaded %d providers from %s in %d us",
+                        snapshot.getProviders().size(), policy.getPath(), (System.nanoTime() - startTime) / 1000);
+            }
+            return snapshot;
+        } catch (IOException e) {
+            EventLogs.get().log(EventLevel.WARN, LOG_SOURCE, "Snapshot could not be loaded from %s: %s",
+                    policy.getPath(), e);
+            return null;
+        }
+    }
+
+    private void restore(Provider provider, boolean isHealthRestored) {
+        ProviderSnapshot snapshot = pendingRestores.remove(provider.getId());
+        if (snapshot == null)
+            return;
+
+        scheduler.updateWeight(provider, snapshot.getWeight());
+
+        TraceableState saved = snapshot.getTraceableState();
+        boolean isAlive = isHealthRestored ? saved.isAlive() : availabilityTracer.isAlive(provider);
+        availabilityTracer.restoreTraceableState(new TraceableState(saved.getId(), isAlive, saved.isExcluded(),
+                saved.getReInclusionCount()));
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            EventLogs.get().log(EventLevel.WARN, LOG_SOURCE, "Checkpoint to %s failed: %s", policy.getPath(), e);
+        }
+    }
+}
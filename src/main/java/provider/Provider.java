@@ -2,9 +2,26 @@ package provider;
 
 import loadbalancer.provideravailability.heartbeat.HeartbeatTraceable;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public interface Provider extends HeartbeatTraceable {
 
     String getId();
 
     String get();
+
+    // Relative capacity used by weighted schedulers; can be overridden at runtime through LoadBalancer.setWeight
+    default int getWeight() {
+        return 1;
+    }
+
+    default CompletableFuture<String> getAsync() {
+        return getAsync(Runnable::run);
+    }
+
+    // Providers with a natively non-blocking client should override this instead of blocking in get()
+    default CompletableFuture<String> getAsync(Executor executor) {
+        return CompletableFuture.supplyAsync(this::get, executor);
+    }
 }
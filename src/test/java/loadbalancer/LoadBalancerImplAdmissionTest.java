@@ -0,0 +1,110 @@
+package loadbalancer;
+
+import loadbalancer.admission.AdmissionController;
+import loadbalancer.admission.AdmissionPolicy;
+import loadbalancer.circuitbreaker.CircuitBreakerPolicy;
+import loadbalancer.provideravailability.heartbeat.HeartbeatPolicy;
+import loadbalancer.scheduling.RoundRobinScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import provider.ProviderImpl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadBalancerImplAdmissionTest {
+
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    // Holds every get() until released
+    private final ProviderImpl provider = new ProviderImpl() {
+        @Override
+        public String get() {
+            try {
+                released.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.get();
+        }
+    };
+
+    private ExecutorService executor;
+    private RoundRobinScheduler scheduler;
+    private LoadBalancerImpl loadBalancer;
+    private AdmissionController controller;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        executor = Executors.newCachedThreadPool();
+        scheduler = new RoundRobinScheduler();
+        loadBalancer = new LoadBalancerImpl(1, false, scheduler, executor, CircuitBreakerPolicy.DEFAULT,
+                new HeartbeatPolicy(50, 1000, 16, 1, null));
+        loadBalancer.setAdmissionPolicy(new AdmissionPolicy(1, 10, 0));
+        controller = loadBalancer.getAdmissionController();
+        loadBalancer.register(provider);
+        await(() -> scheduler.getAvailableCount() == 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        released.countDown();
+        loadBalancer.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void cancelWhileQueuedGivesPlaceBack() throws Exception {
+        var running = loadBalancer.getAsync();
+        var queued = loadBalancer.getAsync();
+        assertEquals(1, controller.getQueueLength());
+
+        queued.cancel(true);
+        assertEquals(0, controller.getQueueLength());
+
+        released.countDown();
+        assertEquals(provider.getId(), running.get(5, TimeUnit.SECONDS));
+        assertAdmissionDrained();
+    }
+
+    @Test
+    void callerTimeoutWhileQueuedGivesPlaceBack() throws Exception {
+        var running = loadBalancer.getAsync();
+        CompletableFuture<String> queued = loadBalancer.getAsync().orTimeout(50, TimeUnit.MILLISECONDS);
+
+        var error = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(0, controller.getQueueLength());
+
+        released.countDown();
+        assertEquals(provider.getId(), running.get(5, TimeUnit.SECONDS));
+        assertAdmissionDrained();
+    }
+
+    // Every permit came back, so the next request is admitted straight away
+    private void assertAdmissionDrained() throws Exception {
+        await(() -> controller.getInFlightCount() == 0);
+        assertEquals(provider.getId(), loadBalancer.getAsync().get(5, TimeUnit.SECONDS));
+        await(() -> controller.getInFlightCount() == 0);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+}
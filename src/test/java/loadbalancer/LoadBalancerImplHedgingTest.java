@@ -0,0 +1,163 @@
+package loadbalancer;
+
+import loadbalancer.circuitbreaker.CircuitBreakerPolicy;
+import loadbalancer.hedging.HedgingPolicy;
+import loadbalancer.provideravailability.heartbeat.HeartbeatPolicy;
+import loadbalancer.scheduling.RoundRobinScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import provider.Provider;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadBalancerImplHedgingTest {
+
+    private final BlockingQueue<GatedProvider> startedCalls = new LinkedBlockingQueue<>();
+    private final GatedProvider first = new GatedProvider();
+    private final GatedProvider second = new GatedProvider();
+
+    private ExecutorService executor;
+    private CountingScheduler scheduler;
+    private LoadBalancerImpl loadBalancer;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        executor = Executors.newCachedThreadPool();
+        scheduler = new CountingScheduler();
+        loadBalancer = new LoadBalancerImpl(2, false, scheduler, executor, CircuitBreakerPolicy.DEFAULT,
+                new HeartbeatPolicy(50, 1000, 16, 1, null));
+        loadBalancer.setHedgingPolicy(HedgingPolicy.fixedDelay(20, 1.0));
+        loadBalancer.register(first);
+        loadBalancer.register(second);
+        await(() -> scheduler.getAvailableCount() == 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.release();
+        second.release();
+        loadBalancer.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void primaryLoserStaysOutstandingUntilItsCallFinishes() throws Exception {
+        var result = loadBalancer.getAsync();
+        GatedProvider primary = awaitStartedCall();
+        GatedProvider hedge = awaitStartedCall();
+
+        hedge.release();
+        assertEquals(hedge.getId(), result.get(5, TimeUnit.SECONDS));
+        // The win is counted just after the result completes
+        await(() -> loadBalancer.getHedgeController().getWonHedgeCount() == 1);
+        assertEquals(0, scheduler.getOutstanding(hedge));
+        assertEquals(1, scheduler.getOutstanding(primary));
+
+        primary.release();
+        await(() -> scheduler.getOutstanding(primary) == 0);
+    }
+
+    @Test
+    void hedgeLoserStaysOutstandingUntilItsCallFinishes() throws Exception {
+        var result = loadBalancer.getAsync();
+        GatedProvider primary = awaitStartedCall();
+        GatedProvider hedge = awaitStartedCall();
+
+        primary.release();
+        assertEquals(primary.getId(), result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loadBalancer.getHedgeController().getSentHedgeCount());
+        assertEquals(0, loadBalancer.getHedgeController().getWonHedgeCount());
+        assertEquals(0, scheduler.getOutstanding(primary));
+        assertEquals(1, scheduler.getOutstanding(hedge));
+
+        hedge.release();
+        await(() -> scheduler.getOutstanding(hedge) == 0);
+    }
+
+    private GatedProvider awaitStartedCall() throws InterruptedException {
+        GatedProvider provider = startedCalls.poll(5, TimeUnit.SECONDS);
+        assertNotNull(provider, "No call started");
+        return provider;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    // Blocks get() until released, so the test decides which call wins
+    private final class GatedProvider implements Provider {
+
+        private final String id = UUID.randomUUID().toString();
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        void release() {
+            released.countDown();
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String get() {
+            startedCalls.add(this);
+            try {
+                released.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return id;
+        }
+
+        @Override
+        public String getTraceableId() {
+            return id;
+        }
+
+        @Override
+        public boolean check() {
+            return true;
+        }
+    }
+
+    private static final class CountingScheduler extends RoundRobinScheduler {
+
+        private final Map<String, AtomicInteger> outstanding = new ConcurrentHashMap<>();
+
+        int getOutstanding(Provider provider) {
+            return outstanding.computeIfAbsent(provider.getId(), id -> new AtomicInteger()).get();
+        }
+
+        @Override
+        public void requestStarted(Provider provider) {
+            outstanding.computeIfAbsent(provider.getId(), id -> new AtomicInteger()).incrementAndGet();
+            super.requestStarted(provider);
+        }
+
+        @Override
+        public void requestCompleted(Provider provider, long latencyInNanos) {
+            outstanding.computeIfAbsent(provider.getId(), id -> new AtomicInteger()).decrementAndGet();
+            super.requestCompleted(provider, latencyInNanos);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package loadbalancer;
+
+import loadbalancer.scheduling.SchedulerType;
+import loadbalancer.snapshot.StateSnapshotPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import provider.ProviderImpl;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LoadBalancerImplSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void registeredWeightIsUsedWithoutSnapshot() {
+        var loadBalancer = new LoadBalancerImpl(1, false, SchedulerType.WEIGHTED_ROUND_ROBIN);
+        try {
+            loadBalancer.setStateSnapshotPolicy(StateSnapshotPolicy.at(directory.resolve("state.snapshot")));
+            var provider = new StableProvider("a");
+
+            loadBalancer.register(provider, 4);
+
+            assertEquals(4, loadBalancer.getWeight(provider));
+        } finally {
+            loadBalancer.close();
+        }
+    }
+
+    @Test
+    void restoredWeightWinsOverRegisteredWeight() {
+        StateSnapshotPolicy policy = StateSnapshotPolicy.at(directory.resolve("state.snapshot"));
+
+        var before = new LoadBalancerImpl(1, false, SchedulerType.WEIGHTED_ROUND_ROBIN);
+        before.setStateSnapshotPolicy(policy);
+        var provider = new StableProvider("a");
+        before.register(provider, 3);
+        before.setWeight(provider, 7);
+        before.close();
+
+        var after = new LoadBalancerImpl(1, false, SchedulerType.WEIGHTED_ROUND_ROBIN);
+        try {
+            after.setStateSnapshotPolicy(policy);
+            var restarted = new StableProvider("a");
+
+            after.register(restarted, 2);
+
+            assertEquals(7, after.getWeight(restarted));
+        } finally {
+            after.close();
+        }
+    }
+
+    // Restoring matches providers by id, which ProviderImpl draws at random
+    private static final class StableProvider extends ProviderImpl {
+
+        private final String id;
+
+        private StableProvider(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getTraceableId() {
+            return id;
+        }
+    }
+}
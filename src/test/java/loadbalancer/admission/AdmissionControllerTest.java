@@ -0,0 +1,108 @@
+package loadbalancer.admission;
+
+import loadbalancer.concurrency.HashedTimingWheel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControllerTest {
+
+    private final HashedTimingWheel timer = new HashedTimingWheel("admission-test", 10, 64, 1);
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void cancelledWaiterLeavesQueueAndTakesNoPermit() {
+        var controller = new AdmissionController(new AdmissionPolicy(1, 10, 0), timer);
+        assertTrue(controller.acquire(RequestPriority.NORMAL, 0).isDone());
+
+        var cancelled = controller.acquire(RequestPriority.NORMAL, 0);
+        var waiting = controller.acquire(RequestPriority.NORMAL, 0);
+        assertEquals(2, controller.getQueueLength());
+
+        cancelled.cancel(false);
+        assertEquals(1, controller.getQueueLength());
+
+        controller.release(0);
+        assertTrue(waiting.isDone() && !waiting.isCompletedExceptionally());
+        assertEquals(1, controller.getInFlightCount());
+        assertEquals(0, controller.getQueueLength());
+    }
+
+    @Test
+    void admittedTicketCanNotBeCancelled() {
+        var controller = new AdmissionController(new AdmissionPolicy(1, 10, 0), timer);
+        var ticket = controller.acquire(RequestPriority.NORMAL, 0);
+
+        assertFalse(ticket.cancel(false));
+        assertEquals(1, controller.getInFlightCount());
+
+        controller.releaseUnsent();
+        assertEquals(0, controller.getInFlightCount());
+    }
+
+    @Test
+    void waiterFailsOnceItsDeadlinePasses() {
+        var controller = new AdmissionController(new AdmissionPolicy(1, 10, 0), timer);
+        controller.acquire(RequestPriority.NORMAL, 0);
+
+        var ticket = controller.acquire(RequestPriority.NORMAL, 50);
+
+        assertReason(OverloadException.Reason.DEADLINE_EXCEEDED, ticket);
+        assertEquals(0, controller.getQueueLength());
+        assertEquals(1, controller.getRejectedCount(OverloadException.Reason.DEADLINE_EXCEEDED));
+
+        // The expired waiter must not take the permit that comes free
+        controller.release(0);
+        assertEquals(0, controller.getInFlightCount());
+    }
+
+    @Test
+    void fullQueueShedsLowestPriorityForHigherOne() {
+        var controller = new AdmissionController(new AdmissionPolicy(1, 2, 0), timer);
+        controller.acquire(RequestPriority.NORMAL, 0);
+
+        var sheddable = controller.acquire(RequestPriority.SHEDDABLE, 0);
+        var normal = controller.acquire(RequestPriority.NORMAL, 0);
+        var critical = controller.acquire(RequestPriority.CRITICAL, 0);
+
+        assertReason(OverloadException.Reason.SHED, sheddable);
+        assertEquals(2, controller.getQueueLength());
+
+        // Nothing below normal is left to shed
+        assertReason(OverloadException.Reason.QUEUE_FULL, controller.acquire(RequestPriority.NORMAL, 0));
+
+        controller.release(0);
+        assertTrue(critical.isDone());
+        assertFalse(normal.isDone());
+    }
+
+    @Test
+    void sheddableOnlyGetsHalfOfQueue() {
+        var controller = new AdmissionController(new AdmissionPolicy(1, 4, 0), timer);
+        controller.acquire(RequestPriority.NORMAL, 0);
+
+        controller.acquire(RequestPriority.SHEDDABLE, 0);
+        controller.acquire(RequestPriority.SHEDDABLE, 0);
+
+        assertReason(OverloadException.Reason.QUEUE_FULL, controller.acquire(RequestPriority.SHEDDABLE, 0));
+        assertFalse(controller.acquire(RequestPriority.NORMAL, 0).isDone());
+    }
+
+    private static void assertReason(OverloadException.Reason reason, CompletableFuture<Void> ticket) {
+        var error = assertThrows(CompletionException.class, () -> ticket.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(reason, assertInstanceOf(OverloadException.class, error.getCause()).getReason());
+    }
+}
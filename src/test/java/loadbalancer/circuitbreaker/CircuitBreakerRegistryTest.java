@@ -0,0 +1,167 @@
+package loadbalancer.circuitbreaker;
+
+import loadbalancer.circuitbreaker.CircuitBreaker.State;
+import loadbalancer.concurrency.HashedTimingWheel;
+import loadbalancer.provideravailability.AvailabilityTracer;
+import loadbalancer.provideravailability.Traceable;
+import loadbalancer.provideravailability.TraceableState;
+import loadbalancer.provideravailability.heartbeat.HeartbeatTraceable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import provider.ProviderImpl;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerRegistryTest {
+
+    private static final long OPEN_DURATION_IN_MS = 100;
+    private static final long TIMEOUT_IN_MS = 5000;
+
+    private static final CircuitBreakerPolicy POLICY = new CircuitBreakerPolicy(
+            60 * 1000, 10, 4, 0.5, 1000, 0.8, OPEN_DURATION_IN_MS, 1);
+
+    // Only the circuit flag matters to the registry
+    private static class CircuitTracer implements AvailabilityTracer {
+
+        private volatile boolean isCircuitOpen;
+
+        @Override
+        public void updateAliveness(HeartbeatTraceable traceable, boolean isAlive) {
+        }
+
+        @Override
+        public void updateExclusion(Traceable traceable, boolean isExcluded) {
+        }
+
+        @Override
+        public void updateCircuitOpen(Traceable traceable, boolean isOpen) {
+            isCircuitOpen = isOpen;
+        }
+
+        @Override
+        public boolean isAlive(HeartbeatTraceable traceable) {
+            return true;
+        }
+
+        @Override
+        public boolean isExcluded(Traceable traceable) {
+            return false;
+        }
+
+        @Override
+        public boolean isCircuitOpen(Traceable traceable) {
+            return isCircuitOpen;
+        }
+
+        @Override
+        public TraceableState getTraceableState(Traceable traceable) {
+            return null;
+        }
+
+        @Override
+        public void restoreTraceableState(TraceableState state) {
+        }
+    }
+
+    private final HashedTimingWheel timingWheel = new HashedTimingWheel("circuit-breaker-test", 1, 64, 1);
+    private final CircuitTracer tracer = new CircuitTracer();
+    private final CircuitBreakerRegistry registry = new CircuitBreakerRegistry(POLICY, tracer, timingWheel);
+    private final ProviderImpl provider = new ProviderImpl();
+
+    @AfterEach
+    void stop() {
+        timingWheel.stop();
+    }
+
+    @Test
+    void takesProviderOutWhileOpenAndBackWhenHalfOpen() throws InterruptedException {
+        registry.providerRegistered(provider);
+        CircuitBreaker circuitBreaker = registry.getCircuitBreaker(provider);
+
+        fail(POLICY.getMinimumCallCount());
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertTrue(tracer.isCircuitOpen);
+
+        awaitState(circuitBreaker, State.HALF_OPEN);
+        awaitCircuitOpen(false);
+
+        assertTrue(registry.tryAcquire(provider));
+        registry.onCompleted(provider, 0, true);
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+        assertFalse(tracer.isCircuitOpen);
+    }
+
+    // The wheel's OPEN -> HALF_OPEN callback runs after a failed trial already reopened the circuit
+    @Test
+    void lateHalfOpenCallbackDoesNotStrandOpenCircuit() throws InterruptedException {
+        registry.providerRegistered(provider);
+        CircuitBreaker circuitBreaker = registry.getCircuitBreaker(provider);
+        fail(POLICY.getMinimumCallCount());
+        awaitState(circuitBreaker, State.HALF_OPEN);
+
+        assertTrue(registry.tryAcquire(provider));
+        fail(1);
+        assertEquals(State.OPEN, circuitBreaker.getState());
+
+        registry.stateChanged(circuitBreaker, State.OPEN, State.HALF_OPEN);
+
+        // Still open, so the provider stays out and the circuit half opens again after the open duration
+        assertTrue(tracer.isCircuitOpen);
+        awaitState(circuitBreaker, State.HALF_OPEN);
+        awaitCircuitOpen(false);
+    }
+
+    @Test
+    void lateOpenCallbackDoesNotReopenClosedCircuit() throws InterruptedException {
+        registry.providerRegistered(provider);
+        CircuitBreaker circuitBreaker = registry.getCircuitBreaker(provider);
+        fail(POLICY.getMinimumCallCount());
+        awaitState(circuitBreaker, State.HALF_OPEN);
+        awaitCircuitOpen(false);
+        registry.tryAcquire(provider);
+        registry.onCompleted(provider, 0, true);
+
+        registry.stateChanged(circuitBreaker, State.HALF_OPEN, State.OPEN);
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+        assertFalse(tracer.isCircuitOpen);
+    }
+
+    @Test
+    void stopsSchedulingOnceUnregistered() throws InterruptedException {
+        registry.providerRegistered(provider);
+        CircuitBreaker circuitBreaker = registry.getCircuitBreaker(provider);
+        fail(POLICY.getMinimumCallCount());
+
+        registry.providerUnregistered(provider);
+
+        Thread.sleep(OPEN_DURATION_IN_MS * 3);
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    private void fail(int count) {
+        for (int i = 0; i < count; i++)
+            registry.onCompleted(provider, 0, false);
+    }
+
+    // The tracer is updated right after the transition, on the thread that made it
+    private void awaitCircuitOpen(boolean isOpen) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_IN_MS);
+        while (tracer.isCircuitOpen != isOpen) {
+            assertTrue(System.nanoTime() < deadline, "Tracer never saw the circuit " + (isOpen ? "open" : "closed"));
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitState(CircuitBreaker circuitBreaker, State state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_IN_MS);
+        while (circuitBreaker.getState() != state) {
+            assertTrue(System.nanoTime() < deadline, "Circuit never became " + state);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package loadbalancer.circuitbreaker;
+
+import loadbalancer.circuitbreaker.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final int MINIMUM_CALL_COUNT = 10;
+    private static final int TRIAL_COUNT = 3;
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    private static final CircuitBreakerPolicy POLICY = new CircuitBreakerPolicy(
+            60 * 1000, 10, MINIMUM_CALL_COUNT, 0.5, 1000, 0.8, 5 * 1000, TRIAL_COUNT);
+
+    private final List<String> transitions = new ArrayList<>();
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("provider", POLICY,
+            (breaker, from, to) -> transitions.add(from + "->" + to));
+
+    @Test
+    void admitsEveryRequestWhileClosed() {
+        for (int i = 0; i < 100; i++)
+            assertTrue(circuitBreaker.tryAcquire());
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void staysClosedBelowMinimumCallCount() {
+        record(MINIMUM_CALL_COUNT - 1, FAST, false);
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+        assertTrue(transitions.isEmpty());
+    }
+
+    @Test
+    void opensAtFailureRateThreshold() {
+        record(5, FAST, true);
+        record(4, FAST, false);
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+
+        record(1, FAST, false);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals(List.of("CLOSED->OPEN"), transitions);
+    }
+
+    @Test
+    void opensAtSlowCallRateThreshold() {
+        record(2, FAST, true);
+        record(8, SLOW, true);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void ignoresResultsWhileOpen() {
+        open();
+        record(MINIMUM_CALL_COUNT, FAST, true);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertEquals(List.of("CLOSED->OPEN"), transitions);
+    }
+
+    @Test
+    void halfOpenLetsOnlyTrialRequestsThrough() {
+        open();
+        assertTrue(circuitBreaker.halfOpen());
+
+        for (int i = 0; i < TRIAL_COUNT; i++)
+            assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpensOnlyOnce() {
+        open();
+
+        assertTrue(circuitBreaker.halfOpen());
+        assertFalse(circuitBreaker.halfOpen());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN"), transitions);
+    }
+
+    @Test
+    void closesAfterAllTrialsSucceed() {
+        open();
+        circuitBreaker.halfOpen();
+
+        for (int i = 0; i < TRIAL_COUNT; i++) {
+            assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+            assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onCompleted(FAST, true);
+        }
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    void startsWithEmptyWindowAfterClosing() {
+        open();
+        circuitBreaker.halfOpen();
+        record(TRIAL_COUNT, FAST, true);
+
+        // The failures that opened the circuit are gone, so new ones must reach the minimum call count again
+        record(MINIMUM_CALL_COUNT - 1, FAST, false);
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void reopensOnFailedTrial() {
+        open();
+        circuitBreaker.halfOpen();
+        circuitBreaker.tryAcquire();
+        circuitBreaker.onCompleted(FAST, false);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void reopensOnSlowTrial() {
+        open();
+        circuitBreaker.halfOpen();
+        circuitBreaker.tryAcquire();
+        circuitBreaker.onCompleted(SLOW, true);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void reopensWhenTrialsNeverComeBack() {
+        open();
+        circuitBreaker.halfOpen();
+        for (int i = 0; i < TRIAL_COUNT; i++)
+            circuitBreaker.tryAcquire();
+
+        assertTrue(circuitBreaker.reopenIfStillHalfOpen());
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void doesNotReopenClosedCircuit() {
+        assertFalse(circuitBreaker.reopenIfStillHalfOpen());
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void releaseReturnsTrialPermit() {
+        open();
+        circuitBreaker.halfOpen();
+        for (int i = 0; i < TRIAL_COUNT; i++)
+            circuitBreaker.tryAcquire();
+        assertFalse(circuitBreaker.tryAcquire());
+
+        circuitBreaker.release();
+
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void releaseNeverExceedsTrialCount() {
+        open();
+        circuitBreaker.halfOpen();
+        for (int i = 0; i < TRIAL_COUNT * 2; i++)
+            circuitBreaker.release();
+
+        for (int i = 0; i < TRIAL_COUNT; i++)
+            assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void releaseDoesNothingWhileOpen() {
+        open();
+        circuitBreaker.release();
+
+        assertFalse(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.halfOpen());
+        for (int i = 0; i < TRIAL_COUNT; i++)
+            assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    private void open() {
+        record(MINIMUM_CALL_COUNT, FAST, false);
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    private void record(int count, long latencyInNanos, boolean isSuccess) {
+        for (int i = 0; i < count; i++)
+            circuitBreaker.onCompleted(latencyInNanos, isSuccess);
+    }
+}
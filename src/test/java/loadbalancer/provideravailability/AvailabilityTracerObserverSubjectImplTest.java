@@ -0,0 +1,213 @@
+package loadbalancer.provideravailability;
+
+import loadbalancer.scheduling.RoundRobinScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import provider.ProviderImpl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvailabilityTracerObserverSubjectImplTest {
+
+    private static final long TIMEOUT_IN_MS = 5000;
+
+    private final AvailabilityTracerObserverSubjectImpl subject = new AvailabilityTracerObserverSubjectImpl(16);
+
+    // Records every batch; the first delivery can be held until the test releases it
+    private static class RecordingObserver implements AvailabilityTracerObserver {
+
+        private final String id;
+        private final BlockingQueue<List<AvailabilityChange>> batches = new LinkedBlockingQueue<>();
+        private final CountDownLatch firstDeliveryStarted = new CountDownLatch(1);
+        private final CountDownLatch release;
+
+        RecordingObserver(String id, CountDownLatch release) {
+            this.id = id;
+            this.release = release;
+        }
+
+        @Override
+        public String getObserverId() {
+            return id;
+        }
+
+        @Override
+        public void traceableAvailabilityChanged(Traceable traceable, boolean isAvailable) {
+        }
+
+        @Override
+        public void traceablesAvailabilityChanged(List<AvailabilityChange> changes) {
+            batches.add(changes);
+            firstDeliveryStarted.countDown();
+            try {
+                release.await(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<AvailabilityChange> nextBatch() throws InterruptedException {
+            return batches.poll(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @AfterEach
+    void stop() {
+        subject.stop();
+    }
+
+    @Test
+    void deliversChangeToEveryObserver() throws InterruptedException {
+        var first = new RecordingObserver("first", new CountDownLatch(0));
+        var second = new RecordingObserver("second", new CountDownLatch(0));
+        subject.attach(first);
+        subject.attach(second);
+
+        subject.notifyAvailabilityChanged(traceable("a"), true);
+
+        for (var observer : List.of(first, second)) {
+            var batch = observer.nextBatch();
+            assertNotNull(batch);
+            assertEquals(1, batch.size());
+            assertEquals("a", batch.get(0).getTraceable().getTraceableId());
+            assertTrue(batch.get(0).isAvailable());
+        }
+    }
+
+    @Test
+    void coalescesChangesPendingBehindSlowObserver() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var observer = new RecordingObserver("slow", release);
+        subject.attach(observer);
+
+        subject.notifyAvailabilityChanged(traceable("first"), true);
+        assertTrue(observer.firstDeliveryStarted.await(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS));
+
+        // Far more changes than ring slots, but only two traceables
+        for (int i = 0; i < 1000; i++) {
+            subject.notifyAvailabilityChanged(traceable("a"), i % 2 == 0);
+            subject.notifyAvailabilityChanged(traceable("b"), i % 2 == 1);
+        }
+        subject.notifyAvailabilityChanged(traceable("a"), true);
+        release.countDown();
+
+        assertEquals(1, observer.nextBatch().size());
+        Map<String, Boolean> latest = observer.nextBatch().stream().collect(Collectors.toMap(
+                change -> change.getTraceable().getTraceableId(), AvailabilityChange::isAvailable));
+        assertEquals(Map.of("a", true, "b", true), latest);
+        assertNull(observer.batches.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void deliversOneBatchForBurstOfTraceables() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var observer = new RecordingObserver("slow", release);
+        subject.attach(observer);
+
+        subject.notifyAvailabilityChanged(traceable("first"), true);
+        assertTrue(observer.firstDeliveryStarted.await(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS));
+
+        // Ten traceables fit the ring, so they are drained together once the observer returns
+        for (int i = 0; i < 10; i++)
+            subject.notifyAvailabilityChanged(traceable("t" + i), false);
+        release.countDown();
+
+        observer.nextBatch();
+        assertEquals(10, observer.nextBatch().size());
+    }
+
+    @Test
+    void failingObserverDoesNotStopOthers() throws InterruptedException {
+        subject.attach(new AvailabilityTracerObserver() {
+            @Override
+            public String getObserverId() {
+                return "failing";
+            }
+
+            @Override
+            public void traceableAvailabilityChanged(Traceable traceable, boolean isAvailable) {
+                throw new IllegalStateException("Observer failure");
+            }
+        });
+        var observer = new RecordingObserver("healthy", new CountDownLatch(0));
+        subject.attach(observer);
+
+        subject.notifyAvailabilityChanged(traceable("a"), false);
+        subject.notifyAvailabilityChanged(traceable("b"), false);
+
+        int delivered = 0;
+        while (delivered < 2) {
+            var batch = observer.nextBatch();
+            assertNotNull(batch);
+            delivered += batch.size();
+        }
+    }
+
+    @Test
+    void detachedObserverReceivesNothing() throws InterruptedException {
+        var detached = new RecordingObserver("detached", new CountDownLatch(0));
+        var attached = new RecordingObserver("attached", new CountDownLatch(0));
+        subject.attach(detached);
+        subject.attach(attached);
+        subject.detach(detached);
+
+        subject.notifyAvailabilityChanged(traceable("a"), true);
+
+        assertNotNull(attached.nextBatch());
+        assertNull(detached.batches.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void dropsChangePublishedBeforeReRegistration() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var observer = new RecordingObserver("slow", release);
+        var scheduler = new RoundRobinScheduler();
+        subject.attach(observer);
+        subject.attach(scheduler);
+
+        var provider = new ProviderImpl();
+        scheduler.providerRegistered(provider);
+        subject.notifyAvailabilityChanged(traceable("first"), true);
+        assertTrue(observer.firstDeliveryStarted.await(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS));
+
+        // Pending while the provider leaves and registers again under the same id
+        subject.notifyAvailabilityChanged(provider, true);
+        scheduler.providerUnregistered(provider);
+        scheduler.providerRegistered(provider);
+        release.countDown();
+        awaitDelivered(observer, "after-re-registration");
+
+        assertNull(scheduler.getNextProvider());
+
+        subject.notifyAvailabilityChanged(provider, true);
+        awaitDelivered(observer, "after-fresh-change");
+
+        assertEquals(provider, scheduler.getNextProvider());
+    }
+
+    // Batches are delivered one after another, so once the sentinel arrives every observer has seen what came before
+    private void awaitDelivered(RecordingObserver observer, String sentinelId) throws InterruptedException {
+        subject.notifyAvailabilityChanged(traceable(sentinelId), true);
+        while (true) {
+            var batch = observer.nextBatch();
+            assertNotNull(batch);
+            if (batch.stream().anyMatch(change -> change.getTraceable().getTraceableId().equals(sentinelId)))
+                return;
+        }
+    }
+
+    private static Traceable traceable(String id) {
+        return () -> id;
+    }
+}
@@ -0,0 +1,124 @@
+package loadbalancer.provideravailability.heartbeat;
+
+import loadbalancer.concurrency.HashedTimingWheel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeartbeatProberTest {
+
+  private static final long TIMEOUT_IN_MS = 5000;
+
+  private final HashedTimingWheel timingWheel = new HashedTimingWheel("prober-test", 1, 64, 1);
+
+  private final HeartbeatProber prober = new HeartbeatProber(timingWheel, 50, 1);
+
+  private static class RecordingCallback implements HeartbeatProber.ProbeCallback {
+
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+    @Override
+    public void probed(boolean isAlive, long checkLatencyInNanos) {
+      events.add("probed:" + isAlive);
+    }
+
+    @Override
+    public void timedOut(long checkLatencyInNanos) {
+      events.add("timedOut");
+    }
+
+    @Override
+    public void finished() {
+      events.add("finished");
+    }
+
+    String next() throws InterruptedException {
+      return events.poll(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @AfterEach
+  void stop() {
+    prober.stop();
+    timingWheel.stop();
+  }
+
+  @Test
+  void reportsAnsweredCheck() throws InterruptedException {
+    var callback = new RecordingCallback();
+
+    assertTrue(prober.probe(traceable(() -> true), callback));
+
+    assertEquals("probed:true", callback.next());
+    assertEquals("finished", callback.next());
+  }
+
+  @Test
+  void reportsHangingCheckAsTimedOut() throws InterruptedException {
+    var callback = new RecordingCallback();
+    var release = new CountDownLatch(1);
+
+    assertTrue(
+        prober.probe(
+            traceable(
+                () -> {
+                  try {
+                    return release.await(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
+                  } catch (InterruptedException e) {
+                    return false;
+                  }
+                }),
+            callback));
+
+    // The deadline interrupts the check; its late answer is not reported again
+    assertEquals("timedOut", callback.next());
+    assertEquals("finished", callback.next());
+    assertEquals(null, callback.events.poll(100, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void refusesProbesBeyondConcurrencyCap() throws InterruptedException {
+    var release = new CountDownLatch(1);
+    var callback = new RecordingCallback();
+    assertTrue(
+        prober.probe(
+            traceable(
+                () -> {
+                  release.countDown();
+                  return true;
+                }),
+            callback));
+
+    // The single permit comes back once the first check has finished
+    assertTrue(release.await(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS));
+    assertEquals("probed:true", callback.next());
+    assertEquals("finished", callback.next());
+    assertTrue(prober.probe(traceable(() -> true), new RecordingCallback()));
+  }
+
+  private interface Check {
+
+    boolean check();
+  }
+
+  private static HeartbeatTraceable traceable(Check check) {
+    return new HeartbeatTraceable() {
+      @Override
+      public boolean check() {
+        return check.check();
+      }
+
+      @Override
+      public String getTraceableId() {
+        return "traceable";
+      }
+    };
+  }
+}
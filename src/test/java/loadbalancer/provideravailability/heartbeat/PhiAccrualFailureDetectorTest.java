@@ -0,0 +1,105 @@
+package loadbalancer.provideravailability.heartbeat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhiAccrualFailureDetectorTest {
+
+    private static final long PERIOD_IN_MS = HeartbeatPolicy.DEFAULT_TRACE_FREQUENCY_IN_MS;
+
+    private static final PhiAccrualPolicy POLICY = PhiAccrualPolicy.DEFAULT;
+
+    // Answers arrive this long after they were expected, so the learned distribution is not degenerate
+    private static final long JITTER_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(POLICY, PERIOD_IN_MS);
+
+    private long now = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void backsOffBeyondFixedPeriodForStableTraceable() {
+        long intervalInMs = detector.heartbeatSucceeded(now);
+        assertEquals(PERIOD_IN_MS, intervalInMs);
+
+        for (int i = 0; i < 10; i++)
+            intervalInMs = arriveOnTime(intervalInMs);
+
+        assertTrue(intervalInMs > PERIOD_IN_MS, "Interval stayed at " + intervalInMs + " ms");
+        assertEquals(POLICY.getMaxIntervalInMs(), intervalInMs);
+        assertTrue(detector.isAvailable(now));
+    }
+
+    @Test
+    void phiRisesAfterMissedBeats() {
+        long intervalInMs = detector.heartbeatSucceeded(now);
+        for (int i = 0; i < 20; i++)
+            intervalInMs = arriveOnTime(intervalInMs);
+
+        long expectedArrival = now + TimeUnit.MILLISECONDS.toNanos(intervalInMs);
+        double previousPhi = detector.phi(expectedArrival);
+        assertTrue(detector.isAvailable(expectedArrival));
+
+        // Phi only grows while no answer comes back, until it crosses the threshold
+        long deadAt = -1;
+        for (long lateInMs = 50; lateInMs <= 5000; lateInMs += 50) {
+            long at = expectedArrival + TimeUnit.MILLISECONDS.toNanos(lateInMs);
+            double phi = detector.phi(at);
+            assertTrue(phi >= previousPhi, "Phi fell from " + previousPhi + " to " + phi);
+            previousPhi = phi;
+            if (deadAt < 0 && !detector.isAvailable(at))
+                deadAt = lateInMs;
+        }
+
+        assertTrue(deadAt > 0, "Never crossed the threshold");
+        assertTrue(deadAt < 2000, "Took " + deadAt + " ms past the expected arrival");
+    }
+
+    @Test
+    void failedCheckDropsToMinIntervalAndRecovers() {
+        long intervalInMs = detector.heartbeatSucceeded(now);
+        for (int i = 0; i < 5; i++)
+            intervalInMs = arriveOnTime(intervalInMs);
+
+        assertEquals(POLICY.getMinIntervalInMs(), detector.heartbeatFailed());
+
+        // The first success after a failure returns to the base interval, then backs off again
+        now += TimeUnit.MILLISECONDS.toNanos(POLICY.getMinIntervalInMs());
+        assertEquals(PERIOD_IN_MS, detector.heartbeatSucceeded(now));
+        assertEquals(2 * PERIOD_IN_MS, arriveOnTime(PERIOD_IN_MS));
+    }
+
+    @Test
+    void timedOutCheckIsDeadUntilNextSuccess() {
+        long intervalInMs = detector.heartbeatSucceeded(now);
+        for (int i = 0; i < 5; i++)
+            intervalInMs = arriveOnTime(intervalInMs);
+
+        now += TimeUnit.MILLISECONDS.toNanos(intervalInMs);
+        assertEquals(POLICY.getMinIntervalInMs(), detector.heartbeatTimedOut());
+        assertFalse(detector.isAvailable(now));
+
+        now += TimeUnit.MILLISECONDS.toNanos(POLICY.getMinIntervalInMs());
+        detector.heartbeatSucceeded(now);
+        assertTrue(detector.isAvailable(now));
+    }
+
+    @Test
+    void lateAnswerShortensInterval() {
+        long intervalInMs = detector.heartbeatSucceeded(now);
+        for (int i = 0; i < 10; i++)
+            intervalInMs = arriveOnTime(intervalInMs);
+
+        now += TimeUnit.MILLISECONDS.toNanos(intervalInMs) + TimeUnit.SECONDS.toNanos(1);
+        assertEquals(POLICY.getMinIntervalInMs(), detector.heartbeatSucceeded(now));
+    }
+
+    private long arriveOnTime(long intervalInMs) {
+        now += TimeUnit.MILLISECONDS.toNanos(intervalInMs) + JITTER_IN_NANOS;
+        return detector.heartbeatSucceeded(now);
+    }
+}
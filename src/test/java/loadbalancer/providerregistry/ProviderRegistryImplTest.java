@@ -0,0 +1,98 @@
+package loadbalancer.providerregistry;
+
+import loadbalancer.eventlog.EventLevel;
+import loadbalancer.eventlog.EventLog;
+import loadbalancer.eventlog.EventLogs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import provider.Provider;
+import provider.ProviderImpl;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProviderRegistryImplTest {
+
+    private static final int PROVIDER_COUNT = 10_000;
+
+    private static class CountingEventLog implements EventLog {
+
+        private final Map<EventLevel, Integer> counts = new EnumMap<>(EventLevel.class);
+
+        @Override
+        public boolean isEnabled(EventLevel level) {
+            return true;
+        }
+
+        @Override
+        public void log(EventLevel level, String source, String format, Object argument) {
+            counts.merge(level, 1, Integer::sum);
+        }
+
+        @Override
+        public void log(EventLevel level, String source, String format, Object firstArgument, Object secondArgument) {
+            counts.merge(level, 1, Integer::sum);
+        }
+
+        @Override
+        public void log(EventLevel level, String source, String format, Object... arguments) {
+            counts.merge(level, 1, Integer::sum);
+        }
+
+        int getCount(EventLevel level) {
+            return counts.getOrDefault(level, 0);
+        }
+    }
+
+    private final CountingEventLog eventLog = new CountingEventLog();
+
+    private EventLog previousEventLog;
+
+    @BeforeEach
+    void setEventLog() {
+        previousEventLog = EventLogs.get();
+        EventLogs.set(eventLog);
+    }
+
+    @AfterEach
+    void restoreEventLog() {
+        EventLogs.set(previousEventLog);
+    }
+
+    @Test
+    void logsOneInfoEventPerBulkRegistration() {
+        var registry = new ProviderRegistryImpl(PROVIDER_COUNT, new ProviderRegistryObserverSubjectImpl());
+        List<Provider> providers = createProviders();
+
+        registry.register(providers);
+
+        assertEquals(PROVIDER_COUNT, registry.getRegisteredCount());
+        assertEquals(1, eventLog.getCount(EventLevel.INFO));
+        assertEquals(PROVIDER_COUNT, eventLog.getCount(EventLevel.DEBUG));
+    }
+
+    @Test
+    void logsOneInfoEventPerBulkUnregistration() {
+        var registry = new ProviderRegistryImpl(PROVIDER_COUNT, new ProviderRegistryObserverSubjectImpl());
+        List<Provider> providers = createProviders();
+        registry.register(providers);
+
+        registry.unregister(providers);
+
+        assertEquals(0, registry.getRegisteredCount());
+        assertEquals(2, eventLog.getCount(EventLevel.INFO));
+        assertEquals(2 * PROVIDER_COUNT, eventLog.getCount(EventLevel.DEBUG));
+    }
+
+    private static List<Provider> createProviders() {
+        List<Provider> providers = new ArrayList<>();
+        for (int i = 0; i < PROVIDER_COUNT; i++)
+            providers.add(new ProviderImpl());
+        return providers;
+    }
+}
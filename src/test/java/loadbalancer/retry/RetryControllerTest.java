@@ -0,0 +1,69 @@
+package loadbalancer.retry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryControllerTest {
+
+    @Test
+    void refusesRetriesOnceBurstIsSpent() {
+        var controller = new RetryController(new RetryPolicy(3, 0.1, 2));
+
+        assertTrue(controller.tryAcquireRetry(1));
+        assertTrue(controller.tryAcquireRetry(1));
+        assertFalse(controller.tryAcquireRetry(1));
+        assertFalse(controller.tryAcquireRetry(2));
+
+        assertEquals(2, controller.getRetryCount());
+        assertEquals(2, controller.getBudgetExhaustedCount());
+        assertEquals(0.0, controller.getAvailableRetries());
+    }
+
+    @Test
+    void successesEarnRetriesBackAtBudgetRatio() {
+        var controller = new RetryController(new RetryPolicy(3, 0.1, 1));
+        assertTrue(controller.tryAcquireRetry(1));
+
+        for (int i = 0; i < 9; i++)
+            controller.requestSucceeded();
+        assertFalse(controller.tryAcquireRetry(1));
+
+        controller.requestSucceeded();
+        assertTrue(controller.tryAcquireRetry(1));
+    }
+
+    @Test
+    void savesUpNoMoreThanBurst() {
+        var controller = new RetryController(new RetryPolicy(3, 0.5, 2));
+
+        for (int i = 0; i < 100; i++)
+            controller.requestSucceeded();
+
+        assertEquals(2.0, controller.getAvailableRetries());
+    }
+
+    @Test
+    void lastAttemptIsNotRetriedAndSpendsNoBudget() {
+        var controller = new RetryController(new RetryPolicy(3, 0.1, 10));
+
+        assertFalse(controller.tryAcquireRetry(3));
+
+        assertEquals(0, controller.getRetryCount());
+        assertEquals(0, controller.getBudgetExhaustedCount());
+        assertEquals(10.0, controller.getAvailableRetries());
+    }
+
+    @Test
+    void releasedRetryGoesBackToBudget() {
+        var controller = new RetryController(new RetryPolicy(3, 0.1, 1));
+        assertTrue(controller.tryAcquireRetry(1));
+
+        controller.releaseRetry();
+
+        assertEquals(0, controller.getRetryCount());
+        assertTrue(controller.tryAcquireRetry(1));
+    }
+}
@@ -0,0 +1,81 @@
+package loadbalancer.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    void aimdAddsOnePerFastRequestWhileBusy() {
+        ConcurrencyLimit limit = ConcurrencyLimitPolicy.aimd(10, 1, 12, 100).createLimit();
+
+        limit.onSample(FAST, 10);
+        assertEquals(11, limit.getLimit());
+
+        // Using less than half of the limit says nothing about more capacity
+        limit.onSample(FAST, 2);
+        assertEquals(11, limit.getLimit());
+
+        limit.onSample(FAST, 11);
+        limit.onSample(FAST, 12);
+        assertEquals(12, limit.getLimit());
+    }
+
+    @Test
+    void aimdBacksOffPerSlowRequestDownToMin() {
+        ConcurrencyLimit limit = ConcurrencyLimitPolicy.aimd(20, 5, 100, 100).createLimit();
+
+        limit.onSample(SLOW, 1);
+        assertEquals(18, limit.getLimit());
+
+        for (int i = 0; i < 50; i++)
+            limit.onSample(SLOW, 1);
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    void gradientGrowsWhileLatencyHolds() {
+        ConcurrencyLimit limit = ConcurrencyLimitPolicy.gradient(20, 1, 1000).createLimit();
+
+        for (int i = 0; i < 50; i++)
+            limit.onSample(FAST, limit.getLimit());
+
+        assertTrue(limit.getLimit() > 40, "Limit " + limit.getLimit());
+    }
+
+    @Test
+    void gradientShrinksOnceLatencyQueuesUp() {
+        ConcurrencyLimit limit = ConcurrencyLimitPolicy.gradient(100, 1, 1000).createLimit();
+        for (int i = 0; i < 20; i++)
+            limit.onSample(FAST, 1);
+        int idleLimit = limit.getLimit();
+
+        for (int i = 0; i < 50; i++)
+            limit.onSample(FAST * 10, limit.getLimit());
+
+        assertEquals(100, idleLimit);
+        assertTrue(limit.getLimit() < 50, "Limit " + limit.getLimit());
+    }
+
+    @Test
+    void gradientSustainedOverloadBottomsOutAtMin() {
+        ConcurrencyLimit limit = ConcurrencyLimitPolicy.gradient(50, 8, 1000).createLimit();
+        limit.onSample(FAST, 50);
+
+        // At the min limit the baseline slowly accepts the new latency, so the limit later probes upwards again
+        int lowestLimit = limit.getLimit();
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(FAST * 100, 50);
+            lowestLimit = Math.min(lowestLimit, limit.getLimit());
+        }
+
+        assertEquals(8, lowestLimit);
+    }
+}
@@ -0,0 +1,156 @@
+package loadbalancer.scheduling;
+
+import org.junit.jupiter.api.Test;
+import provider.Provider;
+import provider.ProviderImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashSchedulerTest {
+
+    private static final int KEY_COUNT = 100_000;
+
+    private static class StableProvider extends ProviderImpl {
+
+        private final String id;
+
+        StableProvider(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+
+    @Test
+    void returnsNullWithoutAvailableProviders() {
+        var scheduler = new ConsistentHashScheduler();
+        assertNull(scheduler.getNextProvider("key"));
+
+        var provider = new StableProvider("provider-0");
+        scheduler.providerRegistered(provider);
+        assertNull(scheduler.getNextProvider("key"));
+    }
+
+    @Test
+    void spreadsKeysEvenly() {
+        var scheduler = new ConsistentHashScheduler();
+        var providers = addProviders(scheduler, 10);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEY_COUNT; i++)
+            counts.merge(scheduler.getNextProvider("key-" + i).getId(), 1, Integer::sum);
+
+        int expected = KEY_COUNT / providers.size();
+        assertEquals(providers.size(), counts.size());
+        for (int count : counts.values())
+            assertTrue(Math.abs(count - expected) < expected * 0.1, "Uneven share: " + counts);
+    }
+
+    @Test
+    void mapsKeysTheSameWayInEveryInstance() {
+        var first = new ConsistentHashScheduler();
+        var second = new ConsistentHashScheduler();
+        addProviders(first, 10);
+        addProviders(second, 10);
+
+        for (int i = 0; i < 1000; i++)
+            assertEquals(first.getNextProvider("key-" + i).getId(), second.getNextProvider("key-" + i).getId());
+    }
+
+    @Test
+    void removingProviderOnlyMovesItsKeys() {
+        var scheduler = new ConsistentHashScheduler();
+        var providers = addProviders(scheduler, 10);
+        String[] before = lookUp(scheduler);
+
+        Provider removed = providers.get(3);
+        scheduler.traceableAvailabilityChanged(removed, false);
+        String[] after = lookUp(scheduler);
+
+        int kept = 0;
+        int others = 0;
+        for (int i = 0; i < KEY_COUNT; i++) {
+            if (before[i].equals(removed.getId())) {
+                assertNotEquals(removed.getId(), after[i]);
+            } else {
+                others++;
+                if (before[i].equals(after[i]))
+                    kept++;
+            }
+        }
+
+        // Maglev trades a little disruption for an even table; far fewer than the removed node's share move
+        assertTrue(kept > others * 0.97, "Moved " + (others - kept) + " of " + others + " keys");
+    }
+
+    // Eleven nodes used to need a larger table than ten, which remapped nearly every key
+    @Test
+    void addingProviderMovesAboutItsShare() {
+        var scheduler = new ConsistentHashScheduler();
+        addProviders(scheduler, 10);
+        String[] before = lookUp(scheduler);
+
+        var added = new StableProvider("provider-10");
+        scheduler.providerRegistered(added);
+        scheduler.traceableAvailabilityChanged(added, true);
+        String[] after = lookUp(scheduler);
+
+        int moved = 0;
+        int movedBetweenExisting = 0;
+        for (int i = 0; i < KEY_COUNT; i++) {
+            if (!before[i].equals(after[i])) {
+                moved++;
+                if (!after[i].equals(added.getId()))
+                    movedBetweenExisting++;
+            }
+        }
+        assertTrue(moved < KEY_COUNT * 1.2 / 11, "Moved " + moved + " keys");
+        assertTrue(movedBetweenExisting < KEY_COUNT * 0.01, "Moved " + movedBetweenExisting + " between existing");
+    }
+
+    @Test
+    void boundedLoadSpillsHotKey() {
+        var scheduler = new ConsistentHashScheduler(ConsistentHashScheduler.DEFAULT_BOUNDED_LOAD_FACTOR);
+        addProviders(scheduler, 4);
+
+        Map<String, Integer> outstanding = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            Provider provider = scheduler.getNextProvider("hot-key");
+            scheduler.requestStarted(provider);
+            outstanding.merge(provider.getId(), 1, Integer::sum);
+        }
+
+        assertEquals(4, outstanding.size());
+        for (int count : outstanding.values())
+            assertTrue(count <= Math.ceil(ConsistentHashScheduler.DEFAULT_BOUNDED_LOAD_FACTOR * 100 / 4),
+                    "Over the bound: " + outstanding);
+    }
+
+    private static List<Provider> addProviders(ConsistentHashScheduler scheduler, int count) {
+        List<Provider> providers = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            providers.add(new StableProvider("provider-" + i));
+
+        scheduler.providersRegistered(providers);
+        providers.forEach(provider -> scheduler.traceableAvailabilityChanged(provider, true));
+        return providers;
+    }
+
+    private static String[] lookUp(ConsistentHashScheduler scheduler) {
+        String[] ids = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++)
+            ids[i] = scheduler.getNextProvider("key-" + i).getId();
+        return ids;
+    }
+}
@@ -0,0 +1,116 @@
+package loadbalancer.scheduling;
+
+import org.junit.jupiter.api.Test;
+import provider.Provider;
+import provider.ProviderImpl;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlowStartTest {
+
+    private static final long DURATION_IN_MS = 300;
+
+    private static final SlowStartPolicy POLICY = new SlowStartPolicy(DURATION_IN_MS, 0.1, 1.0);
+
+    private static final int PICK_COUNT = 20_000;
+
+    private final Provider warmProvider = new ProviderImpl();
+    private final Provider newProvider = new ProviderImpl();
+
+    @Test
+    void rampsFromMinFractionToFullWeight() {
+        long duration = TimeUnit.MILLISECONDS.toNanos(DURATION_IN_MS);
+
+        assertEquals(0.1, POLICY.getWeightFraction(0));
+        assertEquals(0.5, POLICY.getWeightFraction(duration / 2), 1e-9);
+        assertEquals(1.0, POLICY.getWeightFraction(duration));
+        assertEquals(1.0, POLICY.getWeightFraction(duration * 2));
+
+        // More aggression hands out traffic sooner
+        var aggressive = new SlowStartPolicy(DURATION_IN_MS, 0.1, 2.0);
+        assertTrue(aggressive.getWeightFraction(duration / 4) > POLICY.getWeightFraction(duration / 4));
+    }
+
+    @Test
+    void firstAvailableProviderDoesNotWarmUp() {
+        var scheduler = new RandomScheduler();
+        scheduler.setSlowStartPolicy(POLICY);
+        scheduler.providerRegistered(warmProvider);
+        scheduler.traceableAvailabilityChanged(warmProvider, true);
+
+        assertFalse(scheduler.hasWarmingNodes());
+    }
+
+    @Test
+    void turnsAwayPicksOfWarmingProviderUntilRampEnds() throws InterruptedException {
+        var scheduler = new RandomScheduler();
+        addWarmingProvider(scheduler);
+
+        assertTrue(scheduler.hasWarmingNodes());
+        assertTrue(countNewProviderPicks(scheduler) < PICK_COUNT * 0.3);
+
+        awaitRampEnd(scheduler);
+        double share = (double) countNewProviderPicks(scheduler) / PICK_COUNT;
+        assertEquals(0.5, share, 0.05);
+    }
+
+    @Test
+    void divestsLoadScoreOfWarmingProviderUntilRampEnds() throws InterruptedException {
+        var scheduler = new LeastOutstandingScheduler();
+        addWarmingProvider(scheduler);
+
+        assertTrue(scheduler.hasWarmingNodes());
+        assertTrue(countNewProviderPicks(scheduler) < PICK_COUNT * 0.3);
+
+        awaitRampEnd(scheduler);
+        double share = (double) countNewProviderPicks(scheduler) / PICK_COUNT;
+        assertEquals(0.5, share, 0.05);
+    }
+
+    @Test
+    void unavailableAgainRestartsRamp() throws InterruptedException {
+        var scheduler = new RandomScheduler();
+        addWarmingProvider(scheduler);
+        awaitRampEnd(scheduler);
+
+        scheduler.traceableAvailabilityChanged(newProvider, false);
+        scheduler.traceableAvailabilityChanged(newProvider, true);
+
+        assertTrue(scheduler.hasWarmingNodes());
+    }
+
+    // The warm provider serves first, so the new one starts its ramp when it becomes available
+    private void addWarmingProvider(AbstractScheduler scheduler) {
+        scheduler.setSlowStartPolicy(POLICY);
+        scheduler.providerRegistered(warmProvider);
+        scheduler.traceableAvailabilityChanged(warmProvider, true);
+        scheduler.providerRegistered(newProvider);
+        scheduler.traceableAvailabilityChanged(newProvider, true);
+    }
+
+    private void awaitRampEnd(AbstractScheduler scheduler) throws InterruptedException {
+        Thread.sleep(DURATION_IN_MS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.hasWarmingNodes()) {
+            assertTrue(System.nanoTime() < deadline, "Ramp never ended");
+            Thread.sleep(10);
+        }
+    }
+
+    // Requests complete right away, so load aware schedulers see two idle providers
+    private int countNewProviderPicks(AbstractScheduler scheduler) {
+        int count = 0;
+        for (int i = 0; i < PICK_COUNT; i++) {
+            Provider provider = scheduler.getNextProvider();
+            scheduler.requestStarted(provider);
+            scheduler.requestCompleted(provider, 0);
+            if (provider == newProvider)
+                count++;
+        }
+        return count;
+    }
+}
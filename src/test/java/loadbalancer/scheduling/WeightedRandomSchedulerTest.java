@@ -0,0 +1,136 @@
+package loadbalancer.scheduling;
+
+import org.junit.jupiter.api.Test;
+import provider.Provider;
+import provider.ProviderImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeightedRandomSchedulerTest {
+
+    private static final int PICK_COUNT = 200_000;
+
+    // Counts are binomial; six standard deviations keeps a correct table from ever failing in practice
+    private static final double TOLERATED_DEVIATIONS = 6;
+
+    private static class WeightedProvider extends ProviderImpl {
+
+        private final int weight;
+
+        WeightedProvider(int weight) {
+            this.weight = weight;
+        }
+
+        @Override
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+    @Test
+    void returnsNullWithoutAvailableProviders() {
+        var scheduler = new WeightedRandomScheduler();
+        assertNull(scheduler.getNextProvider());
+    }
+
+    @Test
+    void alwaysPicksSingleProvider() {
+        var scheduler = new WeightedRandomScheduler();
+        var providers = addProviders(scheduler, 7);
+
+        for (int i = 0; i < 100; i++)
+            assertSame(providers.get(0), scheduler.getNextProvider());
+    }
+
+    @Test
+    void picksInProportionToWeights() {
+        var scheduler = new WeightedRandomScheduler();
+        var providers = addProviders(scheduler, 1, 2, 3, 4);
+
+        assertShares(providers, countPicks(scheduler));
+    }
+
+    @Test
+    void followsSkewedWeights() {
+        var scheduler = new WeightedRandomScheduler();
+        var providers = addProviders(scheduler, 100, 1, 1, 1, 1, 1);
+
+        assertShares(providers, countPicks(scheduler));
+    }
+
+    @Test
+    void followsWeightUpdates() {
+        var scheduler = new WeightedRandomScheduler();
+        var providers = addProviders(scheduler, 1, 1, 1);
+        scheduler.updateWeight(providers.get(2), 8);
+
+        Map<Provider, Integer> counts = countPicks(scheduler);
+        assertCount(0.8, counts.get(providers.get(2)));
+        assertCount(0.1, counts.get(providers.get(0)));
+    }
+
+    @Test
+    void neverPicksUnavailableProvider() {
+        var scheduler = new WeightedRandomScheduler();
+        var providers = addProviders(scheduler, 5, 1, 1);
+        scheduler.traceableAvailabilityChanged(providers.get(0), false);
+
+        Map<Provider, Integer> counts = countPicks(scheduler);
+        assertEquals(2, counts.size());
+        assertCount(0.5, counts.get(providers.get(1)));
+    }
+
+    @Test
+    void batchPicksFollowWeights() {
+        var scheduler = new WeightedRandomScheduler();
+        var providers = addProviders(scheduler, 1, 3);
+
+        Provider[] batch = new Provider[1000];
+        Map<Provider, Integer> counts = new HashMap<>();
+        for (int i = 0; i < PICK_COUNT / batch.length; i++) {
+            assertEquals(batch.length, scheduler.getNextProviders(batch, 0, batch.length));
+            for (Provider provider : batch)
+                counts.merge(provider, 1, Integer::sum);
+        }
+
+        assertShares(providers, counts);
+    }
+
+    private static List<Provider> addProviders(WeightedRandomScheduler scheduler, int... weights) {
+        List<Provider> providers = new ArrayList<>();
+        for (int weight : weights)
+            providers.add(new WeightedProvider(weight));
+
+        scheduler.providersRegistered(providers);
+        providers.forEach(provider -> scheduler.traceableAvailabilityChanged(provider, true));
+        return providers;
+    }
+
+    private static Map<Provider, Integer> countPicks(WeightedRandomScheduler scheduler) {
+        Map<Provider, Integer> counts = new HashMap<>();
+        for (int i = 0; i < PICK_COUNT; i++)
+            counts.merge(scheduler.getNextProvider(), 1, Integer::sum);
+        return counts;
+    }
+
+    private static void assertShares(List<Provider> providers, Map<Provider, Integer> counts) {
+        long totalWeight = providers.stream().mapToInt(Provider::getWeight).sum();
+        for (Provider provider : providers)
+            assertCount((double) provider.getWeight() / totalWeight, counts.getOrDefault(provider, 0));
+    }
+
+    private static void assertCount(double expectedShare, int count) {
+        double expected = expectedShare * PICK_COUNT;
+        double deviation = Math.sqrt(expected * (1 - expectedShare));
+        assertTrue(Math.abs(count - expected) <= TOLERATED_DEVIATIONS * deviation,
+                "Expected about " + (long) expected + " picks, got " + count);
+    }
+}
@@ -0,0 +1,219 @@
+package loadbalancer.snapshot;
+
+import loadbalancer.provideravailability.TraceableState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StateSnapshotFileTest {
+
+    // Mirrors the file layout: a 16 byte file header, then two slots of the size stored at offset 8
+    private static final int FILE_HEADER_SIZE = 16;
+    private static final int SLOT_HEADER_SIZE = 24;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsNothingWithoutFile() throws IOException {
+        assertNull(new StateSnapshotFile(directory.resolve("state.snapshot")).read());
+    }
+
+    @Test
+    void restoresWrittenSnapshot() throws IOException {
+        Path path = directory.resolve("state.snapshot");
+        StateSnapshot written = new StateSnapshot(1234, List.of(
+                new ProviderSnapshot(new TraceableState("alive", true, false, 0), 3),
+                new ProviderSnapshot(new TraceableState("excluded", false, true, 2), 1),
+                new ProviderSnapshot(new TraceableState("\u00fcn\u00efcode", true, true, 1), 7)));
+
+        try (StateSnapshotFile file = new StateSnapshotFile(path)) {
+            file.write(written);
+        }
+
+        assertSnapshotEquals(written, new StateSnapshotFile(path).read());
+    }
+
+    @Test
+    void alternatesSlots() throws IOException {
+        Path path = directory.resolve("state.snapshot");
+        try (StateSnapshotFile file = new StateSnapshotFile(path)) {
+            file.write(snapshot(1, 2));
+            assertEquals(List.of(0L, 1L), readSlotSequences(path));
+
+            file.write(snapshot(2, 2));
+            assertEquals(List.of(2L, 1L), readSlotSequences(path));
+
+            file.write(snapshot(3, 2));
+            assertEquals(List.of(2L, 3L), readSlotSequences(path));
+        }
+
+        assertEquals(3, new StateSnapshotFile(path).read().getCreatedAtMillis());
+    }
+
+    @Test
+    void fallsBackToPreviousSlotWhenLatestIsCorrupt() throws IOException {
+        Path path = directory.resolve("state.snapshot");
+        try (StateSnapshotFile file = new StateSnapshotFile(path)) {
+            file.write(snapshot(1, 2));
+            file.write(snapshot(2, 2));
+        }
+
+        // Slot 0 holds sequence 2; flip a payload byte so its CRC no longer matches
+        flipByte(path, FILE_HEADER_SIZE + SLOT_HEADER_SIZE + 6);
+
+        assertEquals(1, new StateSnapshotFile(path).read().getCreatedAtMillis());
+    }
+
+    @Test
+    void rejectsTornHeader() throws IOException {
+        Path path = directory.resolve("state.snapshot");
+        try (StateSnapshotFile file = new StateSnapshotFile(path)) {
+            file.write(snapshot(1, 2));
+            file.write(snapshot(2, 2));
+        }
+
+        // The creation time is covered by the CRC as well
+        flipByte(path, FILE_HEADER_SIZE + 8);
+
+        assertEquals(1, new StateSnapshotFile(path).read().getCreatedAtMillis());
+    }
+
+    @Test
+    void readsNothingWhenBothSlotsAreCorrupt() throws IOException {
+        Path path = directory.resolve("state.snapshot");
+        try (StateSnapshotFile file = new StateSnapshotFile(path)) {
+            file.write(snapshot(1, 2));
+            file.write(snapshot(2, 2));
+        }
+
+        int slotSize = readSlotSize(path);
+        flipByte(path, FILE_HEADER_SIZE + SLOT_HEADER_SIZE + 6);
+        flipByte(path, FILE_HEADER_SIZE + slotSize + SLOT_HEADER_SIZE + 6);
+
+        assertNull(new StateSnapshotFile(path).read());
+    }
+
+    @Test
+    void continuesSequenceAfterRestart() throws IOException {
+        Path path = directory.resolve("state.snapshot");
+        try (StateSnapshotFile file = new StateSnapshotFile(path)) {
+            file.write(snapshot(1, 2));
+            file.write(snapshot(2, 2));
+        }
+
+        try (StateSnapshotFile file = new StateSnapshotFile(path)) {
+            assertEquals(2, file.read().getCreatedAtMillis());
+            file.write(snapshot(3, 2));
+        }
+
+        assertEquals(List.of(2L, 3L), readSlotSequences(path));
+        assertEquals(3, new StateSnapshotFile(path).read().getCreatedAtMillis());
+    }
+
+    @Test
+    void growsIntoNewFileAndDeletesOldOne() throws IOException {
+        Path path = directory.resolve("state.snapshot");
+        StateSnapshot large = snapshot(2, 1000);
+        try (StateSnapshotFile file = new StateSnapshotFile(path)) {
+            file.write(snapshot(1, 2));
+            file.write(large);
+        }
+
+        List<Path> files = listFiles();
+        assertEquals(1, files.size());
+        assertNotEquals(path, files.get(0));
+        assertSnapshotEquals(large, new StateSnapshotFile(path).read());
+
+        // Shrinking fits the grown slots, so it stays in the same file
+        try (StateSnapshotFile file = new StateSnapshotFile(path)) {
+            file.write(snapshot(3, 2));
+        }
+        assertEquals(files, listFiles());
+        assertEquals(3, new StateSnapshotFile(path).read().getCreatedAtMillis());
+    }
+
+    @Test
+    void ignoresForeignFile() throws IOException {
+        Path path = directory.resolve("state.snapshot");
+        Files.write(path, new byte[64]);
+
+        StateSnapshotFile file = new StateSnapshotFile(path);
+        assertNull(file.read());
+
+        file.write(snapshot(1, 2));
+        file.close();
+        StateSnapshot read = new StateSnapshotFile(path).read();
+        assertNotNull(read);
+        assertEquals(1, read.getCreatedAtMillis());
+    }
+
+    private static StateSnapshot snapshot(long createdAtMillis, int providerCount) {
+        List<ProviderSnapshot> providers = new ArrayList<>();
+        for (int i = 0; i < providerCount; i++)
+            providers.add(new ProviderSnapshot(new TraceableState("provider-" + i, i % 2 == 0, i % 3 == 0, i % 4), i + 1));
+        return new StateSnapshot(createdAtMillis, providers);
+    }
+
+    private static void assertSnapshotEquals(StateSnapshot expected, StateSnapshot actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getCreatedAtMillis(), actual.getCreatedAtMillis());
+        assertEquals(expected.getProviders().size(), actual.getProviders().size());
+        for (int i = 0; i < expected.getProviders().size(); i++) {
+            ProviderSnapshot expectedProvider = expected.getProviders().get(i);
+            ProviderSnapshot actualProvider = actual.getProviders().get(i);
+            assertEquals(expectedProvider.getId(), actualProvider.getId());
+            assertEquals(expectedProvider.getWeight(), actualProvider.getWeight());
+
+            TraceableState expectedState = expectedProvider.getTraceableState();
+            TraceableState actualState = actualProvider.getTraceableState();
+            assertEquals(expectedState.isAlive(), actualState.isAlive());
+            assertEquals(expectedState.isExcluded(), actualState.isExcluded());
+            assertEquals(expectedState.getReInclusionCount(), actualState.getReInclusionCount());
+        }
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    private static int readSlotSize(Path path) throws IOException {
+        return readFile(path).getInt(8);
+    }
+
+    private static List<Long> readSlotSequences(Path path) throws IOException {
+        ByteBuffer buffer = readFile(path);
+        int slotSize = buffer.getInt(8);
+        return List.of(buffer.getLong(FILE_HEADER_SIZE), buffer.getLong(FILE_HEADER_SIZE + slotSize));
+    }
+
+    private static ByteBuffer readFile(Path path) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(path));
+    }
+
+    private static void flipByte(Path path, int position) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, position);
+            value.put(0, (byte) ~value.get(0));
+            value.rewind();
+            channel.write(value, position);
+        }
+    }
+}